@@ -0,0 +1,368 @@
+/*
+ * OffHeapHeapAPQ
+ *  An adaptable priority queue for long keys and long values built with a minimum heap
+ *  whose arrays live outside the Java heap, in memory segments of the Foreign Function
+ *  and Memory API. The queue puts no objects per entry on the Java heap, so garbage
+ *  collection does not have to mark or copy the entries, however many there are.
+ *  It works like LongKeyHeapAPQ: keys are kept in heap order next to the handle at each
+ *  position, values and positions are indexed by handle, and handles (primitive longs)
+ *  stay valid until their entry is removed. The memory is freed by close().
+ */
+
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+public class OffHeapHeapAPQ implements AutoCloseable {
+
+	private static final long DEFAULT_CAPACITY = 16;
+
+	private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG;
+
+	//the arena that owns the current segments; replaced (and the old one closed) when they grow
+	private Arena arena;
+
+	//keys[i] is the key of the entry at heap position i
+	private MemorySegment keys;
+
+	//handleAt[i] is the handle of the entry at heap position i, for i < size.
+	//Slots size..allocated-1 hold handles that are free for reuse.
+	private MemorySegment handleAt;
+
+	//pos[h] is the heap position of the entry with handle h, or -1 if h is not in the queue
+	private MemorySegment pos;
+
+	//values by handle, so they never move during sifting
+	private MemorySegment values;
+
+	private long capacity;
+
+	private long size;
+
+	//number of handles ever handed out
+	private long allocated;
+
+	/* If no initial capacity is specified, use the default initial capacity. */
+	public OffHeapHeapAPQ() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/* Start the PQ with specified initial capacity */
+	public OffHeapHeapAPQ(long capacity) {
+		allocate(Math.max(1, capacity));
+	}
+
+	//Method that returns the size of the heap
+	public long size() {
+		return size;
+	}
+
+	//Method that returns whether the heap is empty
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	//Method that returns the number of entries the segments can hold before they grow
+	public long capacity() {
+		return capacity;
+	}
+
+	//Method that returns the number of bytes of off-heap memory the queue holds
+	public long byteSize() {
+		return 4 * capacity * Long.BYTES;
+	}
+
+	/*
+	 * Helper method that moves the queue into new segments of a given capacity,
+	 * copying the live part of the old segments and freeing them
+	 * Input: the new capacity
+	 */
+	private void allocate(long cap) {
+		Arena a = Arena.ofShared();
+		long bytes = cap * Long.BYTES;
+		MemorySegment k = a.allocate(bytes, Long.BYTES);
+		MemorySegment ha = a.allocate(bytes, Long.BYTES);
+		MemorySegment p = a.allocate(bytes, Long.BYTES);
+		MemorySegment v = a.allocate(bytes, Long.BYTES);
+
+		if (arena != null) {
+			MemorySegment.copy(keys, 0, k, 0, size * Long.BYTES);
+			MemorySegment.copy(handleAt, 0, ha, 0, allocated * Long.BYTES);
+			MemorySegment.copy(pos, 0, p, 0, allocated * Long.BYTES);
+			MemorySegment.copy(values, 0, v, 0, allocated * Long.BYTES);
+			arena.close();
+		}
+
+		arena = a;
+		keys = k;
+		handleAt = ha;
+		pos = p;
+		values = v;
+		capacity = cap;
+	}
+
+	/*
+	 * Method that frees the off-heap memory. Afterwards the queue reports itself empty:
+	 * size, capacity and byteSize return 0, isEmpty returns true and contains returns false.
+	 * Every call that reads or changes entries throws IllegalStateException. Closing twice does nothing.
+	 */
+	@Override
+	public void close() {
+		if (arena != null) {
+			arena.close();
+			arena = null;
+			size = 0;
+			allocated = 0;
+			capacity = 0;
+		}
+	}
+
+	//Method that returns whether close() has been called
+	public boolean isClosed() {
+		return arena == null;
+	}
+
+	/*
+	 * Helper method that checks the queue has not been closed
+	 */
+	private void checkOpen() throws IllegalStateException {
+		if (arena == null) {
+			throw new IllegalStateException("queue is closed");
+		}
+	}
+
+	/*
+	 * Helper method that checks that a handle refers to an entry in the queue
+	 * Input: the handle
+	 * Output: the heap position of the entry
+	 */
+	private long position(long handle) throws IllegalArgumentException {
+		checkOpen();
+		long p;
+		if (handle < 0 || handle >= allocated || (p = pos.getAtIndex(LONG, handle)) < 0) {
+			throw new IllegalArgumentException("handle is not in this heap");
+		}
+		return p;
+	}
+
+	/*
+	 * Helper method that stores a key and handle at a heap position and records the position
+	 * Input: the heap position, the key and the handle
+	 */
+	private void place(long index, long key, long h) {
+		keys.setAtIndex(LONG, index, key);
+		handleAt.setAtIndex(LONG, index, h);
+		pos.setAtIndex(LONG, h, index);
+	}
+
+	/*
+	 * Helper method that moves a key up the heap, shifting larger parents down into the hole
+	 * Input: the heap position to start from, and the key and handle being placed
+	 */
+	private void upHeap(long index, long key, long h) {
+		while (index > 0) {
+			long parent = (index-1) / 2;
+			long pk = keys.getAtIndex(LONG, parent);
+			if (key >= pk) { //parent is not larger
+				break;
+			}
+			place(index, pk, handleAt.getAtIndex(LONG, parent));
+			index = parent;
+		}
+		place(index, key, h);
+	}
+
+	/*
+	 * Helper method that moves a key down the heap, shifting smaller children up into the hole
+	 * Input: the heap position to start from, and the key and handle being placed
+	 */
+	private void downHeap(long index, long key, long h) {
+		long half = size >>> 1; //positions below half have at least one child
+		while (index < half) {
+			long child = 2 * index + 1;
+			long ck = keys.getAtIndex(LONG, child);
+			long right = child + 1;
+			if (right < size) {
+				long rk = keys.getAtIndex(LONG, right);
+				if (rk < ck) {
+					child = right;
+					ck = rk;
+				}
+			}
+			if (key <= ck) { //no child is smaller
+				break;
+			}
+			place(index, ck, handleAt.getAtIndex(LONG, child));
+			index = child;
+		}
+		place(index, key, h);
+	}
+
+	/*
+	 * Method to insert a new entry to the heap.
+	 * Input: The key and value of the new entry
+	 * Output: The handle of the new entry
+	 */
+	public long insert(long key, long value) throws IllegalStateException {
+		/* TCJ
+		 * A new min has to move from the bottom to the root, which is log n moves.
+		 * The segments double when full, which costs O(n) in the worst case, O(1) amortized.
+		 * The copy is a bulk copy of off-heap memory and creates no garbage.
+		 */
+
+		checkOpen();
+		if (size == capacity) {
+			allocate(2 * capacity);
+		}
+
+		long h;
+		if (size < allocated) { //reuse a freed handle
+			h = handleAt.getAtIndex(LONG, size);
+		} else {
+			h = allocated++;
+		}
+
+		values.setAtIndex(LONG, h, value);
+		size++;
+		upHeap(size-1, key, h);
+		return h;
+	}
+
+	/*
+	 * Method that returns the handle of the minimum entry without removing it
+	 * Output: the handle at the root, or -1 if the heap is empty
+	 */
+	public long min() throws IllegalStateException {
+		checkOpen();
+		return size == 0 ? -1 : handleAt.getAtIndex(LONG, 0);
+	}
+
+	/*
+	 * Method that returns the smallest key without removing it
+	 * Output: the key at the root
+	 */
+	public long minKey() throws IllegalStateException {
+		checkOpen();
+		if (size == 0) {
+			throw new IllegalStateException("heap is empty");
+		}
+		return keys.getAtIndex(LONG, 0);
+	}
+
+	/*
+	 * Method that returns the value of the minimum entry without removing it
+	 * Output: the value at the root
+	 */
+	public long minValue() throws IllegalStateException {
+		checkOpen();
+		if (size == 0) {
+			throw new IllegalStateException("heap is empty");
+		}
+		return values.getAtIndex(LONG, handleAt.getAtIndex(LONG, 0));
+	}
+
+	/*
+	 * Method to remove the entry with the smallest key. Its handle becomes invalid.
+	 * Output: the value of the entry that was removed
+	 */
+	public long removeMin() throws IllegalStateException {
+		/* TCJ
+		 * The last key is moved into the root and sifted down, which is log n moves.
+		 */
+
+		long v = minValue();
+		removeAt(0);
+		return v;
+	}
+
+	/*
+	 * Method to remove an entry from anywhere in the heap. Its handle becomes invalid.
+	 * Input: The handle of the entry to remove
+	 */
+	public void remove(long handle) throws IllegalArgumentException {
+		/* TCJ
+		 * The last key takes the removed entry's place and is sifted up or down, which is log n moves.
+		 */
+
+		removeAt(position(handle));
+	}
+
+	/*
+	 * Helper method that removes the entry at a heap position and frees its handle
+	 * Input: the heap position
+	 */
+	private void removeAt(long index) {
+		long h = handleAt.getAtIndex(LONG, index);
+		size--;
+
+		if (index != size) {
+			long lastKey = keys.getAtIndex(LONG, size);
+			long lastHandle = handleAt.getAtIndex(LONG, size);
+			if (index > 0 && lastKey < keys.getAtIndex(LONG, (index-1) / 2)) {
+				upHeap(index, lastKey, lastHandle);
+			} else {
+				downHeap(index, lastKey, lastHandle);
+			}
+		}
+
+		//park the freed handle just past the live entries so insert can reuse it
+		handleAt.setAtIndex(LONG, size, h);
+		pos.setAtIndex(LONG, h, -1);
+	}
+
+	/*
+	 * Method to replace the key of an entry, which can require correction of the heap order
+	 * Input: The handle of the entry, and the new key
+	 */
+	public void replaceKey(long handle, long key) throws IllegalArgumentException {
+		/* TCJ
+		 * The entry is sifted up or down depending on the new key, which is log n moves.
+		 */
+
+		long index = position(handle);
+		if (key < keys.getAtIndex(LONG, index)) {
+			upHeap(index, key, handle);
+		} else {
+			downHeap(index, key, handle);
+		}
+	}
+
+	/*
+	 * Method to replace the value of an entry.
+	 * Input: The handle of the entry, and the new value
+	 */
+	public void replaceValue(long handle, long value) throws IllegalArgumentException {
+		position(handle);
+		values.setAtIndex(LONG, handle, value);
+	}
+
+	/*
+	 * Method that returns the key of an entry
+	 * Input: The handle of the entry
+	 * Output: its key
+	 */
+	public long getKey(long handle) throws IllegalArgumentException {
+		return keys.getAtIndex(LONG, position(handle));
+	}
+
+	/*
+	 * Method that returns the value of an entry
+	 * Input: The handle of the entry
+	 * Output: its value
+	 */
+	public long getValue(long handle) throws IllegalArgumentException {
+		position(handle);
+		return values.getAtIndex(LONG, handle);
+	}
+
+	/*
+	 * Method that returns whether a handle refers to an entry currently in the heap.
+	 * Note that handles are reused after removal.
+	 * Input: the handle
+	 */
+	public boolean contains(long handle) {
+		return arena != null && handle >= 0 && handle < allocated && pos.getAtIndex(LONG, handle) >= 0;
+	}
+
+}
@@ -0,0 +1,263 @@
+/*
+ * BucketAPQ
+ *  An adaptable priority queue for small integer priorities 0..range-1, built as an
+ *  array of buckets (one doubly linked list per priority) and a cursor at the lowest bucket
+ *  that may be non-empty. Entries are appended at the tail of their bucket and removed from
+ *  the head, so entries with equal priority leave in insertion order (FIFO). Each entry links
+ *  to its neighbours in the bucket, so it can be unlinked in O(1), like in RadixHeapAPQ.
+ */
+
+
+import net.datastructures.*;
+
+public class BucketAPQ<V> implements AdaptablePriorityQueue<Integer,V> {
+
+	//heads[p] and tails[p] are the first and last entries with priority p, or null if there are none
+	private bucketEntry<V>[] heads;
+	private bucketEntry<V>[] tails;
+
+	//no bucket below the cursor holds an entry
+	private int cursor;
+
+	private int size;
+
+	private static class bucketEntry<V> implements Entry<Integer,V> {
+
+		private int k;
+		private V v;
+
+		//neighbours in the bucket list
+		private bucketEntry<V> prev;
+		private bucketEntry<V> next;
+
+		//whether the entry is in a bucket list, i.e. still in the queue
+		private boolean linked;
+
+		public bucketEntry(int key, V value) {
+			k = key;
+			v = value;
+		}
+
+		@Override
+		public Integer getKey() {
+			return k;
+		}
+
+		@Override
+		public V getValue() {
+			return v;
+		}
+
+		public void setValue(V val) {
+			v = val;
+		}
+
+	}
+
+	/* Priorities range over 0..range-1 */
+	@SuppressWarnings("unchecked")
+	public BucketAPQ(int range) {
+		if (range < 1) {
+			throw new IllegalArgumentException("range must be positive");
+		}
+		heads = (bucketEntry<V>[]) new bucketEntry[range];
+		tails = (bucketEntry<V>[]) new bucketEntry[range];
+		cursor = range;
+	}
+
+	//Method that returns the size of the queue
+	@Override
+	public int size() {
+		return size;
+	}
+
+	//Method that returns whether the queue is empty
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	//Method that returns the number of priorities, i.e. one more than the largest allowed key
+	public int range() {
+		return heads.length;
+	}
+
+	/*
+	 * Helper method that checks a key is in range
+	 * Input: the key
+	 */
+	private void checkKey(Integer key) throws IllegalArgumentException {
+		if (key == null || key < 0 || key >= heads.length) {
+			throw new IllegalArgumentException("key out of range: " + key);
+		}
+	}
+
+	/*
+	 * Helper method that appends an entry at the tail of the bucket of its key
+	 * Input: the entry
+	 */
+	private void add(bucketEntry<V> e) {
+		int b = e.k;
+		e.prev = tails[b];
+		e.next = null;
+		if (tails[b] != null) {
+			tails[b].next = e;
+		} else {
+			heads[b] = e;
+		}
+		tails[b] = e;
+		e.linked = true;
+		if (b < cursor) {
+			cursor = b;
+		}
+	}
+
+	/*
+	 * Helper method that takes an entry out of its bucket list
+	 * Input: the entry
+	 */
+	private void detach(bucketEntry<V> e) {
+		int b = e.k;
+		if (e.prev != null) {
+			e.prev.next = e.next;
+		} else {
+			heads[b] = e.next;
+		}
+		if (e.next != null) {
+			e.next.prev = e.prev;
+		} else {
+			tails[b] = e.prev;
+		}
+		e.prev = null;
+		e.next = null;
+		e.linked = false;
+	}
+
+	/*
+	 * Helper method that checks that an entry is in the queue
+	 * Input: the entry
+	 * Output: the entry cast to its implementation type
+	 */
+	private bucketEntry<V> validate(Entry<Integer,V> entry) throws IllegalArgumentException {
+		bucketEntry<V> e = (bucketEntry<V>) entry;
+		if (!e.linked) {
+			throw new IllegalArgumentException("entry is not in this queue");
+		}
+		return e;
+	}
+
+	/*
+	 * Helper method that moves the cursor up past empty buckets
+	 */
+	private void advance() {
+		while (cursor < heads.length && heads[cursor] == null) {
+			cursor++;
+		}
+	}
+
+	/*
+	 * Method to insert a new entry at the tail of the bucket of its priority.
+	 * Input: The key (0..range-1) and value of the new entry
+	 * Output: The new entry
+	 */
+	@Override
+	public Entry<Integer, V> insert(Integer key, V value) throws IllegalArgumentException {
+		/* TCJ
+		 * Appending to a bucket list is O(1).
+		 */
+
+		checkKey(key);
+		bucketEntry<V> nEntry = new bucketEntry<>(key, value);
+		add(nEntry);
+		size++;
+		return nEntry;
+	}
+
+	/*
+	 * Method that returns an entry with the smallest key without removing it
+	 * Output: the oldest entry of the lowest non-empty bucket
+	 */
+	@Override
+	public Entry<Integer, V> min() {
+		/* TCJ
+		 * The cursor moves up over empty buckets, which is O(range) in the worst case: e.g. an insert
+		 * at priority 0 followed by removeMin, repeated while the other entries sit near range-1,
+		 * costs O(range) per pair. When no key below the last removed min is inserted (monotone use,
+		 * as in Dijkstra's algorithm), the cursor never moves down, so the scanning totals O(range)
+		 * over all operations and this is O(1) amortized.
+		 */
+
+		if (size == 0) {
+			return null;
+		}
+		advance();
+		return heads[cursor];
+	}
+
+	/*
+	 * Method to remove the oldest entry with the smallest key
+	 * Output: the entry that was removed
+	 */
+	@Override
+	public Entry<Integer, V> removeMin() {
+		/* TCJ
+		 * Same as min, plus an O(1) removal from the head of the bucket.
+		 */
+
+		if (size == 0) {
+			return null;
+		}
+		advance();
+		bucketEntry<V> e = heads[cursor];
+		detach(e);
+		size--;
+		return e;
+	}
+
+	/*
+	 * Method to remove an entry from anywhere in the queue.
+	 * Input: The entry to remove
+	 */
+	@Override
+	public void remove(Entry<Integer, V> entry) throws IllegalArgumentException {
+		/* TCJ
+		 * The entry knows its neighbours in the bucket list, so unlinking it is O(1).
+		 */
+
+		detach(validate(entry));
+		size--;
+	}
+
+	/*
+	 * Method to move an entry to the tail of the bucket of a new key.
+	 * Input: The entry to be updated, and the new key (0..range-1)
+	 */
+	@Override
+	public void replaceKey(Entry<Integer, V> entry, Integer key) throws IllegalArgumentException {
+		/* TCJ
+		 * An unlink from one bucket and an append to another, so this is O(1).
+		 */
+
+		bucketEntry<V> e = validate(entry);
+		checkKey(key);
+
+		detach(e);
+		e.k = key;
+		add(e);
+	}
+
+	/*
+	 * Method to replace the value stored in an entry.
+	 * Input: The entry being updated and the value to update it with
+	 */
+	@Override
+	public void replaceValue(Entry<Integer, V> entry, V value) throws IllegalArgumentException {
+		/* TCJ
+		 * Changing the value requires no reordering, so this is O(1)
+		 */
+
+		((bucketEntry<V>)entry).setValue(value);
+
+	}
+
+}
@@ -0,0 +1,226 @@
+/*
+ * ChunkedArrayList
+ *  An arraylist stored as a directory of fixed-size chunks instead of one flat array.
+ *  When the list is full, only a new chunk is allocated; existing elements are never
+ *  copied, so addLast has no O(n) step. Element i lives at chunks[i >> CHUNK_BITS][i & MASK].
+ *  It extends the net.datastructures ArrayList so it can back a HeapAPQ in place of a flat one.
+ *  The superclass's own array (allocated with capacity 1) is never used, so every inherited method
+ *  that would read it is overridden; resize, which only a flat list needs, throws.
+ */
+
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import net.datastructures.*;
+
+public class ChunkedArrayList<E> extends ArrayList<E> {
+
+	//each chunk holds 2^CHUNK_BITS elements
+	private static final int CHUNK_BITS = 12;
+	private static final int CHUNK = 1 << CHUNK_BITS;
+	private static final int MASK = CHUNK - 1;
+
+	//directory of chunks; only the first chunkCount entries are allocated
+	private Object[][] chunks;
+	private int chunkCount;
+
+	private int size;
+
+	/* Start with a single chunk */
+	public ChunkedArrayList() {
+		this(CHUNK);
+	}
+
+	/* Start with enough chunks for the specified capacity */
+	public ChunkedArrayList(int capacity) {
+		super(1); //the flat array of the superclass is not used
+		int n = Math.max(1, (capacity + MASK) >>> CHUNK_BITS);
+		chunks = new Object[n][];
+		while (chunkCount < n) {
+			chunks[chunkCount++] = new Object[CHUNK];
+		}
+	}
+
+	//Method that returns the number of elements in the list
+	@Override
+	public int size() {
+		return size;
+	}
+
+	//Method that returns whether the list is empty
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	//Method that returns the number of elements the allocated chunks can hold
+	public int capacity() {
+		return chunkCount << CHUNK_BITS;
+	}
+
+	/*
+	 * Method that releases the chunks beyond a capacity (rounded up to whole chunks, and never
+	 * below the size or one chunk), and shortens the directory if it is mostly empty
+	 * Input: the capacity to keep
+	 */
+	public void shrinkTo(int capacity) {
+		int keep = Math.max(1, (Math.max(capacity, size) + MASK) >>> CHUNK_BITS);
+		while (chunkCount > keep) {
+			chunks[--chunkCount] = null;
+		}
+		if (chunks.length > 2 * keep) {
+			chunks = Arrays.copyOf(chunks, keep);
+		}
+	}
+
+	/*
+	 * Helper method that checks an index is in range. It is not named checkIndex, which the superclass
+	 * declares as a protected instance method that a private static one cannot override.
+	 * Input: the index and the exclusive upper bound
+	 */
+	private static void checkBounds(int i, int n) throws IndexOutOfBoundsException {
+		if (i < 0 || i >= n) {
+			throw new IndexOutOfBoundsException("Illegal index: " + i);
+		}
+	}
+
+	/*
+	 * Method that returns the element at an index
+	 * Input: the index
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public E get(int i) throws IndexOutOfBoundsException {
+		checkBounds(i, size);
+		return (E) chunks[i >>> CHUNK_BITS][i & MASK];
+	}
+
+	/*
+	 * Method that replaces the element at an index
+	 * Input: the index and the new element
+	 * Output: the element that was replaced
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public E set(int i, E e) throws IndexOutOfBoundsException {
+		checkBounds(i, size);
+		Object[] c = chunks[i >>> CHUNK_BITS];
+		E old = (E) c[i & MASK];
+		c[i & MASK] = e;
+		return old;
+	}
+
+	/*
+	 * Method that appends an element to the end of the list
+	 * Input: the element
+	 */
+	@Override
+	public void addLast(E e) {
+		/* TCJ
+		 * A full list allocates one chunk and, rarely, a directory twice as long.
+		 * The directory holds one reference per chunk, so copying it is n / 4096 moves,
+		 * and no element is ever copied.
+		 */
+		int c = size >>> CHUNK_BITS;
+		if (c == chunkCount) {
+			if (c == chunks.length) {
+				Object[][] d = new Object[2 * c][];
+				System.arraycopy(chunks, 0, d, 0, c);
+				chunks = d;
+			}
+			chunks[chunkCount++] = new Object[CHUNK];
+		}
+		chunks[c][size & MASK] = e;
+		size++;
+	}
+
+	/*
+	 * Method that inserts an element at an index, shifting later elements back
+	 * Input: the index and the element
+	 */
+	@Override
+	public void add(int i, E e) throws IndexOutOfBoundsException {
+		checkBounds(i, size + 1);
+		addLast(e);
+		for (int k = size - 1; k > i; k--) {
+			chunks[k >>> CHUNK_BITS][k & MASK] = chunks[(k-1) >>> CHUNK_BITS][(k-1) & MASK];
+		}
+		chunks[i >>> CHUNK_BITS][i & MASK] = e;
+	}
+
+	/*
+	 * Method that removes the element at an index, shifting later elements forward
+	 * Input: the index
+	 * Output: the element that was removed
+	 */
+	@Override
+	public E remove(int i) throws IndexOutOfBoundsException {
+		E old = get(i);
+		for (int k = i; k < size - 1; k++) {
+			chunks[k >>> CHUNK_BITS][k & MASK] = chunks[(k+1) >>> CHUNK_BITS][(k+1) & MASK];
+		}
+		removeLast();
+		return old;
+	}
+
+	/*
+	 * Method that removes the last element. Chunks are kept for reuse.
+	 * Output: the element that was removed
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public E removeLast() throws IndexOutOfBoundsException {
+		checkBounds(size - 1, size);
+		size--;
+		Object[] c = chunks[size >>> CHUNK_BITS];
+		E old = (E) c[size & MASK];
+		c[size & MASK] = null;
+		return old;
+	}
+
+	//Method that returns an iterator over the elements in index order
+	@Override
+	public Iterator<E> iterator() {
+		return new Iterator<E>() {
+			private int j = 0;
+
+			@Override
+			public boolean hasNext() {
+				return j < size;
+			}
+
+			@Override
+			public E next() {
+				if (j >= size) {
+					throw new NoSuchElementException();
+				}
+				return get(j++);
+			}
+		};
+	}
+
+	//Method that returns the elements in index order, formatted as (e0, e1, ...)
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("(");
+		for (int j = 0; j < size; j++) {
+			if (j > 0) {
+				sb.append(", ");
+			}
+			sb.append(get(j));
+		}
+		return sb.append(")").toString();
+	}
+
+	/*
+	 * The superclass resizes its own flat array here, which this list does not use;
+	 * it grows by whole chunks in addLast and shrinks with shrinkTo. Calling it is an error.
+	 * Input: the requested capacity
+	 */
+	@Override
+	protected void resize(int capacity) throws UnsupportedOperationException {
+		throw new UnsupportedOperationException("chunked storage grows by chunks; use shrinkTo to release them");
+	}
+
+}
@@ -0,0 +1,312 @@
+/*
+ * DAryHeapAPQ
+ *  An adaptable priority queue built with a d-ary minimum heap using an arraylist.
+ *  The arity is chosen at construction; a larger arity makes the tree shallower,
+ *  so sifting touches fewer levels at the price of more comparisons per level.
+ */
+
+
+import java.util.Comparator;
+import net.datastructures.*;
+
+public class DAryHeapAPQ<K,V> implements AdaptablePriorityQueue<K,V> {
+
+	public ArrayList<Entry<K,V>> heap;
+
+	private Comparator<K> comp;
+
+	//number of children of every internal node
+	private final int d;
+
+	private static class apqEntry<K,V> implements Entry<K,V> {
+
+		private int index;
+		private K k;
+		private V v;
+
+		public apqEntry(K key, V value, int j) {
+			k = key;
+			v = value;
+			index = j;
+		}
+
+		@Override
+		public K getKey() {
+			return k;
+		}
+
+		@Override
+		public V getValue() {
+			return v;
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		public void setIndex(int i) {
+			index = i;
+		}
+
+		public void setKey(K key) {
+			k = key;
+		}
+
+		public void setValue(V val) {
+			v = val;
+		}
+
+	}
+
+	/* Use the default comparator (see HeapAPQ.DefaultComparator) and the given arity */
+	public DAryHeapAPQ(int arity) {
+		this(new HeapAPQ.DefaultComparator<K>(), arity);
+	}
+
+	/* Start the PQ with the given arity and specified initial capacity */
+	public DAryHeapAPQ(int arity, int capacity) {
+		this(new HeapAPQ.DefaultComparator<K>(), arity, capacity);
+	}
+
+	/* Use specified comparator and the given arity */
+	public DAryHeapAPQ(Comparator<K> c, int arity) {
+		if (arity < 2) {
+			throw new IllegalArgumentException("arity must be at least 2");
+		}
+		comp = c;
+		d = arity;
+		heap = new ArrayList<>();
+	}
+
+	/* Use specified comparator, the given arity and the specified initial capacity */
+	public DAryHeapAPQ(Comparator<K> c, int arity, int capacity) {
+		if (arity < 2) {
+			throw new IllegalArgumentException("arity must be at least 2");
+		}
+		comp = c;
+		d = arity;
+		heap = new ArrayList<>(capacity);
+	}
+
+	//Method that returns the number of children of each node
+	public int arity() {
+		return d;
+	}
+
+	//returns index of parent node of the entry at input index
+	private int parent(int index) {
+		return (index-1) / d;
+	}
+
+	//returns index of the first (leftmost) child of the entry at input index
+	private int firstChild(int index) {
+		return index * d + 1;
+	}
+
+	/*
+	 * Helper method that stores an entry at an index and updates the entry's index
+	 * Input: the index and the entry to place there
+	 */
+	private void place(int i, apqEntry<K,V> e) {
+		heap.set(i, e);
+		e.setIndex(i);
+	}
+
+	//Method that returns the size of the heap
+	@Override
+	public int size() {
+		return heap.size();
+	}
+
+	//Method that returns whether the heap is empty
+	@Override
+	public boolean isEmpty() {
+		return heap.isEmpty();
+	}
+
+	/*
+	 * Helper method that moves an entry up the heap to correct the heap order after changes have been made.
+	 * Parents are shifted down into the hole so that every moved entry is written once.
+	 * Input: the integer index that has been changed
+	 */
+	private void upHeap(int index) {
+		apqEntry<K,V> e = (apqEntry<K,V>) heap.get(index);
+
+		while (index > 0) {
+			int p = parent(index);
+			apqEntry<K,V> pe = (apqEntry<K,V>) heap.get(p);
+
+			if (comp.compare(e.getKey(), pe.getKey()) >= 0) { //parent is not larger
+				break;
+			}
+
+			place(index, pe);
+			index = p;
+		}
+
+		place(index, e);
+	}
+
+	/*
+	 * Helper method that moves an entry down the heap to correct the heap order after changes have been made.
+	 * At each level the smallest of the (up to d) children is found and shifted up into the hole.
+	 * Input: the integer index that has been changed
+	 */
+	private void downHeap(int index) {
+		int n = heap.size();
+		apqEntry<K,V> e = (apqEntry<K,V>) heap.get(index);
+
+		int c = firstChild(index);
+		while (c < n) {
+			//find the smallest child
+			int s = c;
+			K sKey = heap.get(c).getKey();
+			int end = Math.min(c + d, n);
+			for (int j = c + 1; j < end; j++) {
+				K jKey = heap.get(j).getKey();
+				if (comp.compare(jKey, sKey) < 0) {
+					s = j;
+					sKey = jKey;
+				}
+			}
+
+			if (comp.compare(sKey, e.getKey()) >= 0) { //no child is smaller
+				break;
+			}
+
+			place(index, (apqEntry<K,V>) heap.get(s));
+			index = s;
+			c = firstChild(index);
+		}
+
+		place(index, e);
+	}
+
+	/*
+	 * Method to insert a new entry to the heap. The new entry added to the bottom of the heap, which can require correction of the heap order
+	 * Input: The key and value of the new entry
+	 * Output: The new entry
+	 */
+	@Override
+	public Entry<K, V> insert(K key, V value) throws IllegalArgumentException {
+		/* TCJ
+		 * A new min has to travel from the bottom to the root, which is log_d n levels
+		 * with one comparison per level, so insert gets cheaper as d grows.
+		 * As with HeapAPQ, a full arraylist adds an O(n) copy in the worst case.
+		 */
+
+		apqEntry<K,V> nEntry = new apqEntry<>(key, value, heap.size());
+		heap.addLast(nEntry);
+		upHeap(heap.size()-1);
+		return nEntry;
+	}
+
+	/*
+	 * Method that returns the minimum entry, aka the root, without removing it from the heap
+	 * Output: the entry currently in the root node
+	 */
+	@Override
+	public Entry<K, V> min() {
+		/* TCJ
+		 * The min is always at index 0, so this is O(1)
+		 */
+		if (heap.size() >= 1) {
+			return heap.get(0);
+		}
+
+		return null;
+	}
+
+	/*
+	 * Method to remove the node from the heap that has the smallest key, aka the root node
+	 * Output: the entry that was removed
+	 */
+	@Override
+	public Entry<K, V> removeMin() {
+		/* TCJ
+		 * The last entry is moved into the root and sifted down log_d n levels,
+		 * with d comparisons per level, so this is O(d log_d n).
+		 */
+
+		if (heap.size() == 0) {
+			return null;
+		}
+
+		Entry<K, V> e = heap.get(0);
+		Entry<K, V> last = heap.get(heap.size()-1);
+		heap.removeLast();
+
+		if (heap.size() > 0) {
+			place(0, (apqEntry<K,V>) last);
+			downHeap(0);
+		}
+
+		return e;
+	}
+
+	/*
+	 * Method to remove a node in the heap, from anywhere, which can require correction of the heap order.
+	 * Input: The entry to remove
+	 */
+	@Override
+	public void remove(Entry<K, V> entry) throws IllegalArgumentException {
+		/* TCJ
+		 * The last entry takes the removed entry's place and is sifted either up (log_d n levels)
+		 * or down (d log_d n comparisons), whichever the heap order requires.
+		 */
+
+		int index = ((apqEntry<K,V>)entry).getIndex();
+		if (index < 0 || index >= heap.size() || heap.get(index) != entry) {
+			throw new IllegalArgumentException("entry is not in this heap");
+		}
+
+		Entry<K, V> last = heap.get(heap.size()-1);
+		heap.removeLast();
+
+		if (last != entry) {
+			place(index, (apqEntry<K,V>) last);
+			if (index > 0 && comp.compare(last.getKey(), heap.get(parent(index)).getKey()) < 0) {
+				upHeap(index);
+			} else {
+				downHeap(index);
+			}
+		}
+	}
+
+	/*
+	 * Method to replace the key stored in a node in the heap, which can require correction of the heap order
+	 * Input: The heap entry to be updated, and the new key value to update it with
+	 */
+	@Override
+	public void replaceKey(Entry<K, V> entry, K key) throws IllegalArgumentException {
+		/* TCJ
+		 * A smaller key is sifted up (log_d n levels), a larger key is sifted down
+		 * (d log_d n comparisons).
+		 */
+
+		K oldKey = entry.getKey();
+		((apqEntry<K,V>)entry).setKey(key);
+
+		if (comp.compare(oldKey, key) > 0) {
+			upHeap(((apqEntry<K,V>)entry).getIndex());
+
+		} else {
+			downHeap(((apqEntry<K,V>)entry).getIndex());
+		}
+	}
+
+	/*
+	 * Method to replace the value stored in a node in the heap.
+	 * Input: The entry being updated and the value to update it with
+	 */
+	@Override
+	public void replaceValue(Entry<K, V> entry, V value) throws IllegalArgumentException {
+		/* TCJ
+		 * Changing the value requires no reordering of the heap, so this is O(1)
+		 */
+
+		((apqEntry<K,V>)entry).setValue(value);
+
+	}
+
+}
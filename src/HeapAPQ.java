@@ -4,7 +4,17 @@
  */
 
 
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import net.datastructures.*;
 
 public class HeapAPQ<K,V> implements AdaptablePriorityQueue<K,V> {
@@ -13,6 +23,41 @@ public class HeapAPQ<K,V> implements AdaptablePriorityQueue<K,V> {
 	
 	private Comparator<K> comp;
 	
+	/*
+	 * How downHeap restores the heap order.
+	 * STANDARD compares the sifted entry against both children at each level and stops as soon as it fits.
+	 * BOTTOM_UP (Floyd) moves the hole down to a leaf along the smaller children, one comparison per level,
+	 * then sifts the entry up from there. It pays off when keys are expensive to compare, because
+	 * the entry moved into the root by removeMin almost always belongs near the bottom.
+	 */
+	public enum SiftStrategy { STANDARD, BOTTOM_UP }
+	
+	private SiftStrategy strategy = SiftStrategy.STANDARD;
+	
+	//update session state: whether a session is open, and the entries whose replaced keys
+	//are still pending (each listed once, in the order of their first replaceKey).
+	//The dirty array doubles as needed; once it is past DIRTY_KEEP slots, the repair drops it back to
+	//DIRTY_CAPACITY, so one large session does not hold a spike-sized array for the life of the heap.
+	private static final int DIRTY_CAPACITY = 16;
+	private static final int DIRTY_KEEP = 1024;
+	private boolean updating;
+	@SuppressWarnings("unchecked")
+	private apqEntry<K,V>[] dirty = (apqEntry<K,V>[]) new apqEntry[DIRTY_CAPACITY];
+	private int dirtyCount;
+	
+	//in stable mode, entries with equal keys leave in insertion order (FIFO).
+	//Every entry is stamped with the next sequence number when it is created.
+	private boolean stable;
+	private long sequence;
+	
+	//shrink policy: after a removal leaves fewer than capacity / shrinkDivisor entries, the backing
+	//arraylist is cut to twice the size; 0 (the default) never shrinks it. A plain ArrayList does not
+	//report its capacity, so flatCapacity is this heap's record of it: the size it was created or cut to,
+	//raised to the largest size seen by a removal.
+	private static final int MIN_SHRINK_CAPACITY = 16;
+	private int shrinkDivisor;
+	private int flatCapacity = MIN_SHRINK_CAPACITY;
+	
 	public static class DefaultComparator<K> implements Comparator<K> {
 		
 		// This compare method simply calls the compareTo method of the argument. 
@@ -33,15 +78,23 @@ public class HeapAPQ<K,V> implements AdaptablePriorityQueue<K,V> {
 		private K k;
 		private V v;
 		
-		public apqEntry(K key, V value, int j) {
+		//insertion sequence number, the tie-breaker between equal keys in stable mode
+		private long seq;
+		
+		//a key replaced during an update session; k, which orders the heap, takes it on repair
+		private K pendingKey;
+		private boolean pending;
+		
+		public apqEntry(K key, V value, int j, long s) {
 			k = key;
 			v = value;
 			index = j;
+			seq = s;
 		}
 		
 		@Override
 		public K getKey() {
-			return k;
+			return pending ? pendingKey : k;
 		}
 
 		@Override
@@ -87,41 +140,267 @@ public class HeapAPQ<K,V> implements AdaptablePriorityQueue<K,V> {
 	 * If no initial capacity is specified, use the default initial capacity.
 	 */
 	public HeapAPQ() {
-		heap = new ArrayList<>();
-		comp = new DefaultComparator<K> ();
+		this(new DefaultComparator<K>());
 	}
 	
 	/* Start the PQ with specified initial capacity */
 	public HeapAPQ(int capacity) {
-		heap = new ArrayList<>(capacity);
-		comp = new DefaultComparator<K> ();
+		this(new DefaultComparator<K>(), capacity);
 	}
 	
 	
 	/* Use specified comparator */
 	public HeapAPQ(Comparator<K> c) {
-		comp = c;
-		heap = new ArrayList<>(); 
+		this(c, new ArrayList<>());
 	}
 	
 	/* Use specified comparator and the specified initial capacity */
 	public HeapAPQ(Comparator<K> c, int capacity) {
+		this(c, capacity, SiftStrategy.STANDARD);
+	}
+	
+	/* Use specified comparator, initial capacity and sift strategy */
+	public HeapAPQ(Comparator<K> c, int capacity, SiftStrategy s) {
+		this(c, capacity, s, false);
+	}
+	
+	/* Use specified comparator, initial capacity and sift strategy; if stable is true,
+	 * entries with equal keys are removed in the order they were inserted
+	 */
+	public HeapAPQ(Comparator<K> c, int capacity, SiftStrategy s, boolean stable) {
+		this(c, new ArrayList<>(capacity), s, stable);
+		flatCapacity = capacity;
+	}
+	
+	/* Use specified comparator and an empty backing arraylist supplied by the caller,
+	 * e.g. a ChunkedArrayList or an IncrementalArrayList, which grow without copying all the entries at once
+	 */
+	public HeapAPQ(Comparator<K> c, ArrayList<Entry<K,V>> storage) throws IllegalArgumentException {
+		this(c, storage, SiftStrategy.STANDARD, false);
+	}
+	
+	/* Use specified comparator, an empty backing arraylist supplied by the caller, and sift strategy;
+	 * if stable is true, entries with equal keys are removed in the order they were inserted.
+	 * The other constructors delegate to this one.
+	 */
+	public HeapAPQ(Comparator<K> c, ArrayList<Entry<K,V>> storage, SiftStrategy s, boolean stable) throws IllegalArgumentException {
+		if (!storage.isEmpty()) {
+			throw new IllegalArgumentException("storage must be empty");
+		}
 		comp = c;
-		heap = new ArrayList<>(capacity); 
+		heap = storage;
+		strategy = s;
+		this.stable = stable;
+	}
+	
+	//Method that returns the sift strategy used by downHeap
+	public SiftStrategy getSiftStrategy() {
+		return strategy;
+	}
+	
+	//Method that returns whether entries with equal keys are removed in insertion order
+	public boolean isStable() {
+		return stable;
+	}
+	
+	/*
+	 * Method to set the shrink policy: after a removal leaves fewer than capacity / divisor entries,
+	 * the backing arraylist is cut to twice the size, so it is half full and must halve again (or double)
+	 * before it is resized again. For example, 4 halves the capacity (or more) once occupancy falls
+	 * below a quarter. 0 turns shrinking off, which is the default.
+	 * Input: the divisor, 0 or at least 3
+	 */
+	public void setShrinkDivisor(int divisor) throws IllegalArgumentException {
+		if (divisor != 0 && divisor < 3) {
+			throw new IllegalArgumentException("shrink divisor must be 0 or at least 3");
+		}
+		shrinkDivisor = divisor;
+	}
+	
+	//Method that returns the shrink divisor, 0 if removals never shrink the backing arraylist
+	public int getShrinkDivisor() {
+		return shrinkDivisor;
+	}
+	
+	/*
+	 * Method to cut the backing arraylist down to the current size, e.g. once a spike has drained
+	 */
+	public void trimToSize() {
+		/* TCJ
+		 * A plain arraylist is copied, O(n); a chunked one only drops its spare chunks. An incremental one
+		 * moves into the smaller array over the following operations (and skips the trim while it is
+		 * still migrating after a growth), so no call stalls for O(n).
+		 */
+		resizeStorage(heap.size());
+	}
+	
+	/*
+	 * Helper method that returns the capacity of the backing arraylist
+	 * Output: the capacity reported by a chunked or incremental arraylist, or flatCapacity for a plain one
+	 */
+	private int storageCapacity() {
+		if (heap instanceof ChunkedArrayList) {
+			return ((ChunkedArrayList<Entry<K,V>>)heap).capacity();
+		}
+		if (heap instanceof IncrementalArrayList) {
+			return ((IncrementalArrayList<Entry<K,V>>)heap).capacity();
+		}
+		return flatCapacity;
 	}
 	
 	/*
-	 * Helper method that swaps two indexes
-	 * Input: the integer indexes to be swapped
+	 * Helper method that cuts the backing arraylist to a smaller capacity (never below the size).
+	 * Chunked and incremental arraylists shrink themselves; a plain one is replaced by a smaller copy.
+	 * Input: the new capacity
 	 */
-	private void swap(int i, int j) {
+	private void resizeStorage(int capacity) {
+		int n = heap.size();
+		capacity = Math.max(capacity, Math.max(n, 1));
 		
-		Entry<K,V> temp = heap.get(i);
-		heap.set(i, heap.get(j));
-		heap.set(j, temp);
+		if (heap instanceof ChunkedArrayList) {
+			((ChunkedArrayList<Entry<K,V>>)heap).shrinkTo(capacity);
+		} else if (heap instanceof IncrementalArrayList) {
+			((IncrementalArrayList<Entry<K,V>>)heap).shrinkTo(capacity);
+		} else {
+			ArrayList<Entry<K,V>> smaller = new ArrayList<>(capacity);
+			for (int i = 0; i < n; i++) {
+				smaller.addLast(heap.get(i)); //entries keep their indexes
+			}
+			heap = smaller;
+			flatCapacity = capacity;
+		}
+	}
+	
+	/*
+	 * Helper method that applies the shrink policy after a removal
+	 * Input: the size before the removal
+	 */
+	private void shrinkIfSparse(int sizeBefore) {
+		/* TCJ
+		 * A shrink copies at most n entries, and it only happens after the size has fallen below
+		 * capacity / divisor, i.e. after at least as many removals since the capacity was last set,
+		 * so it is O(1) amortized per removal. An incremental arraylist spreads that copy over the
+		 * following operations, so its worst case per removal stays O(log n). With the policy off
+		 * this is a single test.
+		 */
+		if (shrinkDivisor == 0) {
+			return;
+		}
+		if (sizeBefore > flatCapacity) {
+			flatCapacity = sizeBefore;
+		}
+		int n = heap.size();
+		int target = Math.max(2 * n, MIN_SHRINK_CAPACITY);
+		if (n < storageCapacity() / shrinkDivisor && target < storageCapacity()) {
+			resizeStorage(target);
+		}
+	}
+	
+	/*
+	 * Helper method that orders two entries: by key, and in stable mode by insertion sequence
+	 * when the keys are equal
+	 * Output: a negative number, zero or a positive number as a comes before, with or after b
+	 */
+	private int compare(Entry<K,V> a, Entry<K,V> b) {
+		int c = comp.compare(((apqEntry<K,V>)a).k, ((apqEntry<K,V>)b).k);
+		if (c == 0 && stable) {
+			return Long.compare(((apqEntry<K,V>)a).seq, ((apqEntry<K,V>)b).seq);
+		}
+		return c;
+	}
+	
+	/*
+	 * Builds a heap from parallel arrays of keys and values in O(n), instead of n inserts.
+	 * Input: the comparator, the keys and values (same length), and an optional list (may be null)
+	 * that receives the new entries in input order, so callers can keep location-aware references
+	 * Output: the new heap
+	 */
+	public static <K,V> HeapAPQ<K,V> heapify(Comparator<K> c, K[] keys, V[] values, ArrayList<Entry<K,V>> handles)
+			throws IllegalArgumentException {
+		if (keys.length != values.length) {
+			throw new IllegalArgumentException("keys and values differ in length");
+		}
 		
-		((apqEntry<K,V>)heap.get(i)).setIndex(i);
-		((apqEntry<K,V>)heap.get(j)).setIndex(j);
+		HeapAPQ<K,V> q = new HeapAPQ<>(c, Math.max(keys.length, 1));
+		for (int i = 0; i < keys.length; i++) {
+			q.append(keys[i], values[i], handles);
+		}
+		q.heapify();
+		return q;
+	}
+	
+	/*
+	 * Builds a heap from keys and values given by two iterables in O(n)
+	 * Input: the comparator, the keys and values (same number of each), and an optional list (may be null)
+	 * that receives the new entries in input order
+	 * Output: the new heap
+	 */
+	public static <K,V> HeapAPQ<K,V> heapify(Comparator<K> c, Iterable<K> keys, Iterable<V> values, ArrayList<Entry<K,V>> handles)
+			throws IllegalArgumentException {
+		HeapAPQ<K,V> q = new HeapAPQ<>(c);
+		int handlesBefore = handles == null ? 0 : handles.size();
+		Iterator<K> ki = keys.iterator();
+		Iterator<V> vi = values.iterator();
+		while (ki.hasNext() && vi.hasNext()) {
+			q.append(ki.next(), vi.next(), handles);
+		}
+		if (ki.hasNext() || vi.hasNext()) {
+			//the lengths are only known after iterating, so take back the entries of the discarded heap
+			while (handles != null && handles.size() > handlesBefore) {
+				handles.removeLast();
+			}
+			throw new IllegalArgumentException("keys and values differ in length");
+		}
+		q.heapify();
+		return q;
+	}
+	
+	/*
+	 * Builds a heap from a stream of key-value pairs in O(n)
+	 * Input: the comparator, the pairs, and an optional list (may be null)
+	 * that receives the new entries in stream encounter order
+	 * Output: the new heap
+	 */
+	public static <K,V> HeapAPQ<K,V> heapify(Comparator<K> c, Stream<? extends Map.Entry<K,V>> pairs, ArrayList<Entry<K,V>> handles) {
+		HeapAPQ<K,V> q = new HeapAPQ<>(c);
+		pairs.forEachOrdered(p -> q.append(p.getKey(), p.getValue(), handles));
+		q.heapify();
+		return q;
+	}
+	
+	/*
+	 * Helper method that adds a new entry at the end of the heap without restoring the heap order
+	 * Input: the key and value, and an optional list that receives the new entry
+	 */
+	private void append(K key, V value, ArrayList<Entry<K,V>> handles) {
+		apqEntry<K,V> nEntry = new apqEntry<>(key, value, heap.size(), sequence++);
+		heap.addLast(nEntry);
+		if (handles != null) {
+			handles.addLast(nEntry);
+		}
+	}
+	
+	/*
+	 * Helper method that restores the heap order of the whole heap bottom-up:
+	 * every internal node, from the last one back to the root, is moved down.
+	 */
+	private void heapify() {
+		/* TCJ
+		 * A node at height h moves down at most h levels, and only n / 2^(h+1) nodes have height h,
+		 * so the total work sums to O(n) rather than the O(n log n) of n inserts.
+		 */
+		for (int i = heap.size() / 2 - 1; i >= 0; i--) {
+			downHeap(i);
+		}
+	}
+	
+	/*
+	 * Helper method that stores an entry at an index and updates the entry's index
+	 * Input: the index and the entry to place there
+	 */
+	private void place(int i, Entry<K,V> e) {
+		heap.set(i, e);
+		((apqEntry<K,V>)e).setIndex(i);
 	}
 	
 	//Method that returns the size of the heap
@@ -137,61 +416,119 @@ public class HeapAPQ<K,V> implements AdaptablePriorityQueue<K,V> {
 	}
 
 	/*
-	 * Helper method that swaps up the heap to correct the heap order after changes have been made
+	 * Helper method that moves up the heap to correct the heap order after changes have been made
 	 * Input: the integer index that has been changed
 	 */
 	private void upHeap(int index) {
-		if (index == 0) {return;}//base case: reached the root
-		int parent = ((apqEntry<K,V>)heap.get(index)).parent(index);		
-		
-		K thisKey = ((apqEntry<K,V>)heap.get(index)).getKey();
-		K parentKey = ((apqEntry<K,V>)heap.get(parent)).getKey();
-		
-		if (comp.compare(thisKey, parentKey) > 0) { //base case: parent is smaller
-			return;
+		upHeap(index, heap.get(index));
+	}
+	
+	/*
+	 * Helper method that moves an entry up from a hole. Larger parents are shifted down into the hole,
+	 * so every moved entry (and its index) is written exactly once.
+	 * Input: the index of the hole and the entry that belongs in it
+	 */
+	private void upHeap(int hole, Entry<K,V> e) {
+		while (hole > 0) {
+			int parent = (hole-1) / 2;
+			Entry<K,V> p = heap.get(parent);
+			
+			if (compare(e, p) >= 0) { //parent is not larger
+				break;
+			}
+			
+			place(hole, p);
+			hole = parent;
 		}
 		
-		swap(index, parent);
-		upHeap(parent);
-		
+		place(hole, e);
 	}
 	
 	/*
-	 * Helper method that swaps down the heap to correct the heap order after changes have been made
+	 * Helper method that corrects the heap order below an index, using the sift strategy of this heap
 	 * Input: the integer index that has been changed
 	 */
 	private void downHeap(int index) {
-		
-		int s = index;
-		int l = Integer.MAX_VALUE; 
-		int r = Integer.MAX_VALUE;
-		
-		if (hasLeft(heap.get(index))) {
-			l = ((apqEntry<K,V>)heap.get(index)).left(index);
-		}
-		
-		if (hasRight(heap.get(index))) {
-			r = ((apqEntry<K,V>)heap.get(index)).right(index);
+		downHeap(index, heap.get(index));
+	}
+	
+	/*
+	 * Helper method that moves an entry down from a hole, using the sift strategy of this heap
+	 * Input: the index of the hole and the entry that belongs in it
+	 */
+	private void downHeap(int hole, Entry<K,V> e) {
+		if (strategy == SiftStrategy.BOTTOM_UP) {
+			bottomUpDownHeap(hole, e);
+		} else {
+			standardDownHeap(hole, e);
 		}
+	}
+	
+	/*
+	 * Helper method that moves an entry down from a hole. At each level the smaller child is
+	 * shifted up into the hole until the entry is no larger than both children.
+	 * Input: the index of the hole and the entry that belongs in it
+	 */
+	private void standardDownHeap(int hole, Entry<K,V> e) {
+		int n = heap.size();
+		int half = n >>> 1; //indexes below half have at least one child
 		
-		//find the smallest key
-		if (hasLeft(heap.get(index)) && (comp.compare(heap.get(l).getKey(), heap.get(s).getKey()) < 0)) {
+		while (hole < half) {
+			int child = 2 * hole + 1;
+			Entry<K,V> c = heap.get(child);
+			
+			//find the smaller child
+			if (child + 1 < n) {
+				Entry<K,V> r = heap.get(child + 1);
+				if (compare(r, c) < 0) {
+					child++;
+					c = r;
+				}
+			}
 			
-			s = l;
+			if (compare(e, c) <= 0) { //no child is smaller
+				break;
+			}
+			
+			place(hole, c);
+			hole = child;
 		}
 		
-		if (hasRight(heap.get(index)) && (comp.compare(heap.get(r).getKey(), heap.get(s).getKey()) < 0)) {
-			
-			s = r;
+		place(hole, e);
+	}
+	
+	/*
+	 * Helper method that moves an entry down from a hole with Floyd's bottom-up sift:
+	 * the hole is walked down to a leaf along the smaller children, then the entry is sifted up
+	 * from the leaf. Entries are moved into the hole rather than swapped.
+	 * Input: the index of the hole and the entry that belongs in it
+	 */
+	private void bottomUpDownHeap(int index, Entry<K,V> e) {
+		int n = heap.size();
+		int hole = index;
+		
+		//walk down: one comparison per level, between the two children
+		int child = 2 * hole + 1;
+		while (child < n) {
+			if (child + 1 < n && compare(heap.get(child + 1), heap.get(child)) < 0) {
+				child++;
+			}
+			place(hole, heap.get(child));
+			hole = child;
+			child = 2 * hole + 1;
 		}
 		
-		//one of the children had a smaller key
-		if (s != index) {
-			swap(index, s);
-			downHeap(s);
+		//walk back up until the entry fits, which is usually after a step or two
+		while (hole > index) {
+			int parent = (hole-1) / 2;
+			if (compare(e, heap.get(parent)) >= 0) {
+				break;
+			}
+			place(hole, heap.get(parent));
+			hole = parent;
 		}
 		
-		return; //base case: the key at the index was the smallest, or it had no children
+		place(hole, e);
 	}
 	
 	/*
@@ -206,19 +543,149 @@ public class HeapAPQ<K,V> implements AdaptablePriorityQueue<K,V> {
 		 * and the arraylist IS at capacity.
 		 * This means that the arraylist would have to be copied over to a new arraylist
 		 * of double capacity, which would take O(n) time.
-		 * 
-		 * The worst amortized case of insert would be if a new min was inserted (at the bottom, as always), 
+		 * A ChunkedArrayList or IncrementalArrayList backing (see the storage constructors) avoids this copy:
+		 * the first only allocates a new chunk, the second moves a few entries per call, so insert stays log n.
+		 *
+		 * The worst amortized case of insert would be if a new min was inserted (at the bottom, as always),
 		 * and the arraylist IS NOT at capacity.
-		 * The new entry would have to be swapped all the way up the tree,
-		 * which would be log n swaps.
+		 * The new entry would have to be moved all the way up the tree,
+		 * which would be log n moves.
 		 */
 		
-		apqEntry<K,V> nEntry = new apqEntry<>(key, value, heap.size());
+		repairPending();
+		
+		apqEntry<K,V> nEntry = new apqEntry<>(key, value, heap.size(), sequence++);
 		heap.addLast(nEntry);
 		upHeap(heap.size()-1);
 		return nEntry;
 	}
 
+	/*
+	 * Method to insert a batch of entries, given as parallel arrays of keys and values.
+	 * Input: The keys and values of the new entries (same length)
+	 * Output: The new entries, in input order
+	 */
+	public ArrayList<Entry<K,V>> insertAll(K[] keys, V[] values) throws IllegalArgumentException {
+		repairPending();
+		if (keys.length != values.length) {
+			throw new IllegalArgumentException("keys and values differ in length");
+		}
+		
+		int oldSize = heap.size();
+		ArrayList<Entry<K,V>> handles = new ArrayList<>(Math.max(keys.length, 1));
+		for (int i = 0; i < keys.length; i++) {
+			append(keys[i], values[i], handles);
+		}
+		repairAppended(oldSize);
+		return handles;
+	}
+	
+	/*
+	 * Method to insert a batch of entries, given as two iterables of keys and values.
+	 * If the iterables differ in length, nothing is inserted.
+	 * Input: The keys and values of the new entries (same number of each)
+	 * Output: The new entries, in input order
+	 */
+	public ArrayList<Entry<K,V>> insertAll(Iterable<K> keys, Iterable<V> values) throws IllegalArgumentException {
+		repairPending();
+		int oldSize = heap.size();
+		long oldSequence = sequence;
+		ArrayList<Entry<K,V>> handles = new ArrayList<>();
+		Iterator<K> ki = keys.iterator();
+		Iterator<V> vi = values.iterator();
+		while (ki.hasNext() && vi.hasNext()) {
+			append(ki.next(), vi.next(), handles);
+		}
+
+		if (ki.hasNext() || vi.hasNext()) {
+			//a bad batch inserts nothing: the appended entries are still at the end, unsifted
+			while (heap.size() > oldSize) {
+				heap.removeLast();
+			}
+			sequence = oldSequence;
+			throw new IllegalArgumentException("keys and values differ in length");
+		}
+		repairAppended(oldSize);
+		return handles;
+	}
+	
+	/*
+	 * Helper method that restores the heap order after entries were appended without sifting.
+	 * Sifting up each appended entry in order gives the same heap as inserting them one by one;
+	 * when the batch is large compared to the heap, a single bottom-up rebuild is cheaper.
+	 * Input: the size of the heap before the entries were appended
+	 */
+	private void repairAppended(int oldSize) {
+		/* TCJ
+		 * Sifting up m entries costs O(m log n) in the worst case but close to O(m) for keys in
+		 * random order, and it touches mostly cached slots. The rebuild always costs O(n + m).
+		 * Measured, the rebuild only wins once the batch is at least twice the existing heap,
+		 * so that is where the switch is made.
+		 */
+		int n = heap.size();
+		int m = n - oldSize;
+		if (m == 0) {
+			return;
+		}
+		
+		if (m >= 2L * oldSize) {
+			heapify();
+		} else {
+			for (int i = oldSize; i < n; i++) {
+				upHeap(i);
+			}
+		}
+	}
+	
+	/*
+	 * Method to move every entry of another heap into this one, leaving the other heap empty.
+	 * The other heap's entries stay valid and now belong to this heap. Keys are compared with
+	 * this heap's comparator, which should order them the same way as the other heap's.
+	 * In stable mode, equal keys from the two heaps are ordered by their own insertion sequences,
+	 * and entries inserted after the meld come after all of them.
+	 * Input: the heap to absorb
+	 */
+	public void meld(HeapAPQ<K,V> other) throws IllegalArgumentException {
+		/* TCJ
+		 * The smaller of the two arraylists is appended to the larger one, so only min(n, m)
+		 * entries move. The appended entries are then sifted up, or the whole heap is rebuilt
+		 * in O(n + m) when they outnumber the rest (see repairAppended). If the heaps use different
+		 * kinds of backing arraylist, the other heap's entries are always the ones appended.
+		 */
+		
+		if (other == this) {
+			throw new IllegalArgumentException("cannot meld a heap with itself");
+		}
+		repairPending();
+		other.repairPending();
+		
+		//keep the larger arraylist, so its entries need no moving or index updates,
+		//unless that would swap the kinds of backing arraylist the two heaps use
+		if (other.heap.size() > heap.size() && other.heap.getClass() == heap.getClass()) {
+			ArrayList<Entry<K,V>> temp = heap;
+			heap = other.heap;
+			other.heap = temp;
+			
+			//the recorded capacity belongs to the arraylist, so it moves with it
+			int cap = flatCapacity;
+			flatCapacity = other.flatCapacity;
+			other.flatCapacity = cap;
+		}
+		
+		int oldSize = heap.size();
+		for (int i = 0; i < other.heap.size(); i++) {
+			Entry<K,V> e = other.heap.get(i);
+			heap.addLast(e);
+			((apqEntry<K,V>)e).setIndex(heap.size()-1);
+		}
+		while (!other.heap.isEmpty()) {
+			other.heap.removeLast();
+		}
+		sequence = Math.max(sequence, other.sequence);
+		
+		repairAppended(oldSize);
+	}
+	
 	/*
 	 * Method that returns the minimum entry, aka the root, without removing it from the heap
 	 * Output: the entry currently in the root node
@@ -229,6 +696,8 @@ public class HeapAPQ<K,V> implements AdaptablePriorityQueue<K,V> {
 		 * Because the heap is location aware, we can access at index 0 (the min).
 		 * Therefore, there is no looping or recursion, giving a time complexity of O(1)    
 		 */
+		repairPending();
+		
 		if (heap.size() >= 1) {
 			return heap.get(0);
 		}
@@ -243,28 +712,447 @@ public class HeapAPQ<K,V> implements AdaptablePriorityQueue<K,V> {
 	@Override
 	public Entry<K, V> removeMin() {
 		/* TCJ
-		 * The worst case of removing min is the case every time, because the largest key got swapped into root.
-		 * It will have to be swapped all the way down the tree.
-		 * This would be log n swaps.    
+		 * The worst case of removing min is the case every time, because the largest key got moved into root.
+		 * It will have to be moved all the way down the tree.
+		 * This would be log n moves.    
 		 */
 		
+		repairPending();
+		
 		if (heap.size() == 0) {
 			return null;
 		}
 		
+		int n = heap.size();
 		Entry<K, V> e = heap.get(0);
+		Entry<K, V> last = heap.get(n-1);
+		heap.removeLast();
+		
+		if (!heap.isEmpty()) {
+			downHeap(0, last); //the last entry fills the hole left at the root
+		}
+		shrinkIfSparse(n);
+		return e;
+	}
 
-		if (heap.size() == 1) {
-			heap.remove(0);
-			return e;
+	/*
+	 * Method to remove the k entries with the smallest keys
+	 * Input: the number of entries to remove (fewer are removed if the heap is smaller)
+	 * Output: the removed entries, in ascending key order
+	 */
+	@SuppressWarnings("unchecked")
+	public Entry<K,V>[] removeMin(int k) {
+		repairPending();
+		int count = Math.max(0, Math.min(k, heap.size()));
+		Entry<K,V>[] out = (Entry<K,V>[]) new Entry[count];
+		extractMin(count, out, null);
+		return out;
+	}
+	
+	/*
+	 * Method to remove the k entries with the smallest keys into a collection
+	 * Input: the collection to add the entries to, and the number of entries to remove
+	 * Output: the number of entries removed, which is less than k if the heap is smaller
+	 */
+	public int drainTo(Collection<? super Entry<K,V>> target, int k) {
+		repairPending();
+		int count = Math.max(0, Math.min(k, heap.size()));
+		extractMin(count, null, target);
+		return count;
+	}
+	
+	/*
+	 * Helper method that removes the count smallest entries one after another.
+	 * Each removal always uses the bottom-up sift, whatever the strategy of this heap: the entry
+	 * moved into the root comes from the end of the arraylist and almost always belongs near the bottom.
+	 * Input: the number of entries to remove, and either an array or a collection to put them in
+	 */
+	private void extractMin(int count, Entry<K,V>[] out, Collection<? super Entry<K,V>> target) {
+		/* TCJ
+		 * Each removal costs about log n + 2 comparisons instead of the 2 log n of the standard sift,
+		 * so removing k entries is O(k log n) with roughly half the comparisons of k calls to removeMin.
+		 */
+		int n = heap.size();
+		for (int t = 0; t < count; t++) {
+			Entry<K,V> e = removeRoot();
+			if (out != null) {
+				out[t] = e;
+			} else {
+				target.add(e);
+			}
 		}
-		
-		swap(0, heap.size()-1);
+		shrinkIfSparse(n);
+	}
+	
+	/*
+	 * Helper method that removes the root with the bottom-up sift
+	 * Output: the entry that was at the root
+	 */
+	private Entry<K,V> removeRoot() {
+		Entry<K,V> e = heap.get(0);
+		Entry<K,V> last = heap.get(heap.size()-1);
 		heap.removeLast();
-		downHeap(0);
+		
+		if (!heap.isEmpty()) {
+			bottomUpDownHeap(0, last);
+		}
 		return e;
 	}
-
+	
+	/*
+	 * Method to remove every entry whose key is at most a threshold, e.g. every expired timer.
+	 * Only the part of the heap at or below the threshold is visited to count them; then they are
+	 * either removed from the root one by one, or, when they are a large part of the heap,
+	 * picked out in one pass and the rest rebuilt bottom-up.
+	 * Input: the threshold key
+	 * Output: the removed entries, in no particular order
+	 */
+	public ArrayList<Entry<K,V>> removeAllAtMost(K key) {
+		/* TCJ
+		 * Counting visits the m matching entries and at most m + 1 of their children, O(m).
+		 * Removing them from the root costs O(m log n); picking them out and rebuilding costs O(n).
+		 * The cheaper of the two is chosen (see rebuildIsCheaper).
+		 */
+		repairPending();
+		
+		int n = heap.size();
+		int[] m = new int[1];
+		forEachAtMost(key, e -> m[0]++);
+		ArrayList<Entry<K,V>> out = new ArrayList<>(Math.max(m[0], 1));
+		
+		if (rebuildIsCheaper(m[0])) {
+			forEachAtMost(key, e -> {
+				out.addLast(e);
+				((apqEntry<K,V>)e).setIndex(-1); //marks the entry for compaction
+			});
+			compact();
+			heapify();
+		} else {
+			for (int i = 0; i < m[0]; i++) {
+				out.addLast(removeRoot());
+			}
+		}
+		shrinkIfSparse(n);
+		return out;
+	}
+	
+	/*
+	 * Method that passes every entry whose key is at most a threshold to an action, without changing
+	 * the heap. Subtrees whose root is above the threshold are skipped, so this is O(m) for m matches.
+	 * The action must not modify the heap.
+	 * Input: the threshold key and the action
+	 */
+	public void forEachAtMost(K key, Consumer<? super Entry<K,V>> action) {
+		repairPending();
+		if (!heap.isEmpty()) {
+			forEachAtMost(0, key, action);
+		}
+	}
+	
+	/*
+	 * Helper method that visits the subtree rooted at an index, pruned at the threshold.
+	 * The recursion depth is at most the height of the heap.
+	 * Input: the index, the threshold key and the action
+	 */
+	private void forEachAtMost(int index, K key, Consumer<? super Entry<K,V>> action) {
+		Entry<K,V> e = heap.get(index);
+		if (comp.compare(e.getKey(), key) > 0) {
+			return; //everything below is larger too
+		}
+		
+		action.accept(e);
+		int c = 2 * index + 1;
+		if (c < heap.size()) {
+			forEachAtMost(c, key, action);
+			if (c + 1 < heap.size()) {
+				forEachAtMost(c + 1, key, action);
+			}
+		}
+	}
+	
+	/*
+	 * Method to remove every entry that matches a predicate, e.g. all jobs of a deleted tenant.
+	 * The entries left in the heap stay valid. The predicate must not modify the heap.
+	 * Input: the predicate, which is tested once on every entry
+	 * Output: the number of entries removed
+	 */
+	public int removeIf(Predicate<? super Entry<K,V>> filter) {
+		/* TCJ
+		 * Testing every entry is O(n). Then the h matches are either removed one by one or dropped
+		 * while the arraylist is compacted in one pass and rebuilt, O(n). Unlike removeAllAtMost,
+		 * the matches are spread over the heap, and most entries sit near the bottom, so a single
+		 * remove usually moves only a level or two. Measured, the rebuild wins once a quarter of
+		 * the heap matches.
+		 */
+		repairPending();
+		
+		ArrayList<Entry<K,V>> hits = new ArrayList<>();
+		for (int i = 0; i < heap.size(); i++) {
+			Entry<K,V> e = heap.get(i);
+			if (filter.test(e)) {
+				hits.addLast(e);
+			}
+		}
+		
+		int h = hits.size();
+		if (h > 0 && 4L * h >= heap.size()) {
+			int n = heap.size();
+			for (int i = 0; i < h; i++) {
+				((apqEntry<K,V>)hits.get(i)).setIndex(-1); //marks the entry for compaction
+			}
+			compact();
+			heapify();
+			shrinkIfSparse(n);
+		} else {
+			for (int i = 0; i < h; i++) {
+				remove(hits.get(i));
+			}
+		}
+		return h;
+	}
+	
+	/*
+	 * Helper method that decides how to take m entries out of the heap
+	 * Input: the number of entries to remove
+	 * Output: true if removing them in one pass and rebuilding in O(n) beats m removals of O(log n)
+	 */
+	private boolean rebuildIsCheaper(int m) {
+		int n = heap.size();
+		return m > 0 && (long) m * (32 - Integer.numberOfLeadingZeros(n)) >= 2L * n;
+	}
+	
+	/*
+	 * Helper method that drops the entries whose index was set to -1, keeping the order of the others
+	 * and updating their indexes. The heap order is not restored.
+	 */
+	private void compact() {
+		int n = heap.size();
+		int w = 0;
+		for (int i = 0; i < n; i++) {
+			Entry<K,V> e = heap.get(i);
+			if (((apqEntry<K,V>)e).getIndex() >= 0) {
+				if (w != i) {
+					place(w, e);
+				}
+				w++;
+			}
+		}
+		for (int i = n; i > w; i--) {
+			heap.removeLast();
+		}
+	}
+	
+	/*
+	 * Method that returns the k entries with the smallest keys without changing the heap
+	 * Input: the number of entries wanted (fewer are returned if the heap is smaller)
+	 * Output: the entries, in ascending key order
+	 */
+	@SuppressWarnings("unchecked")
+	public Entry<K,V>[] peekTopK(int k) {
+		/* TCJ
+		 * The k smallest entries form a subtree at the top of the heap. They are found with a
+		 * best-first walk from the root: a small heap of candidate indexes (the frontier) holds the
+		 * children of the entries taken so far. Each step pops one candidate and pushes at most two,
+		 * so the frontier never holds more than k + 1 indexes and the walk is O(k log k).
+		 */
+		repairPending();
+		
+		int count = Math.max(0, Math.min(k, heap.size()));
+		Entry<K,V>[] out = (Entry<K,V>[]) new Entry[count];
+		if (count == 0) {
+			return out;
+		}
+		
+		int n = heap.size();
+		int[] frontier = new int[count + 1];
+		int fs = frontierPush(frontier, 0, 0);
+		for (int t = 0; t < count; t++) {
+			int p = frontier[0];
+			fs = frontierPop(frontier, fs);
+			out[t] = heap.get(p);
+			
+			int c = 2 * p + 1;
+			if (t + 1 < count && c < n) {
+				fs = frontierPush(frontier, fs, c);
+				if (c + 1 < n) {
+					fs = frontierPush(frontier, fs, c + 1);
+				}
+			}
+		}
+		return out;
+	}
+	
+	/*
+	 * Method that returns an iterator over the entries in ascending key order, without changing the heap.
+	 * It is the walk of peekTopK continued lazily, so taking the first k entries costs O(k log k).
+	 * The heap must not be modified while the iterator is in use.
+	 * Output: the iterator
+	 */
+	public Iterator<Entry<K,V>> orderedIterator() {
+		repairPending();
+		return new OrderedIterator();
+	}
+	
+	/*
+	 * Method that returns a spliterator over the entries in heap (array) order, not key order.
+	 * It splits its index range in halves, so parallel streams can scan a large heap without copying.
+	 * The heap must not be modified while the spliterator is in use.
+	 * Output: the spliterator
+	 */
+	public Spliterator<Entry<K,V>> spliterator() {
+		return new HeapSpliterator(0, heap.size());
+	}
+	
+	//Method that returns a sequential stream over the entries in heap (array) order
+	public Stream<Entry<K,V>> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+	
+	//Method that returns a parallel stream over the entries in heap (array) order
+	public Stream<Entry<K,V>> parallelStream() {
+		return StreamSupport.stream(spliterator(), true);
+	}
+	
+	/*
+	 * Iterator that walks the heap best-first: a frontier of heap indexes, itself kept as a heap,
+	 * holds the children of the entries returned so far, and next() pops the smallest of them.
+	 */
+	private class OrderedIterator implements Iterator<Entry<K,V>> {
+		
+		private int[] frontier = new int[16];
+		private int fs;
+		
+		OrderedIterator() {
+			if (!heap.isEmpty()) {
+				fs = frontierPush(frontier, fs, 0);
+			}
+		}
+		
+		@Override
+		public boolean hasNext() {
+			return fs > 0;
+		}
+		
+		@Override
+		public Entry<K,V> next() {
+			if (fs == 0) {
+				throw new NoSuchElementException();
+			}
+			int p = frontier[0];
+			fs = frontierPop(frontier, fs);
+			
+			int c = 2 * p + 1;
+			int n = heap.size();
+			if (c < n) {
+				if (fs + 2 > frontier.length) {
+					frontier = Arrays.copyOf(frontier, frontier.length * 2);
+				}
+				fs = frontierPush(frontier, fs, c);
+				if (c + 1 < n) {
+					fs = frontierPush(frontier, fs, c + 1);
+				}
+			}
+			return heap.get(p);
+		}
+	}
+	
+	/*
+	 * Spliterator over a range of heap indexes
+	 */
+	private class HeapSpliterator implements Spliterator<Entry<K,V>> {
+		
+		private int index;
+		private final int fence;
+		
+		HeapSpliterator(int origin, int fence) {
+			index = origin;
+			this.fence = fence;
+		}
+		
+		@Override
+		public boolean tryAdvance(Consumer<? super Entry<K,V>> action) {
+			if (index >= fence) {
+				return false;
+			}
+			action.accept(heap.get(index++));
+			return true;
+		}
+		
+		@Override
+		public void forEachRemaining(Consumer<? super Entry<K,V>> action) {
+			for (; index < fence; index++) {
+				action.accept(heap.get(index));
+			}
+		}
+		
+		@Override
+		public Spliterator<Entry<K,V>> trySplit() {
+			int mid = (index + fence) >>> 1;
+			if (mid <= index) {
+				return null;
+			}
+			Spliterator<Entry<K,V>> prefix = new HeapSpliterator(index, mid);
+			index = mid;
+			return prefix;
+		}
+		
+		@Override
+		public long estimateSize() {
+			return fence - index;
+		}
+		
+		@Override
+		public int characteristics() {
+			return SIZED | SUBSIZED | NONNULL;
+		}
+	}
+	
+	/*
+	 * Helper method that adds a heap index to a frontier, ordered by the key at that index
+	 * Input: the frontier, its current size and the heap index
+	 * Output: the new frontier size
+	 */
+	private int frontierPush(int[] frontier, int fs, int index) {
+		Entry<K,V> e = heap.get(index);
+		int hole = fs;
+		while (hole > 0) {
+			int parent = (hole-1) / 2;
+			if (compare(e, heap.get(frontier[parent])) >= 0) {
+				break;
+			}
+			frontier[hole] = frontier[parent];
+			hole = parent;
+		}
+		frontier[hole] = index;
+		return fs + 1;
+	}
+	
+	/*
+	 * Helper method that removes the first heap index from a frontier
+	 * Input: the frontier and its current size
+	 * Output: the new frontier size
+	 */
+	private int frontierPop(int[] frontier, int fs) {
+		fs--;
+		int index = frontier[fs];
+		Entry<K,V> e = heap.get(index);
+		int hole = 0;
+		int half = fs >>> 1;
+		while (hole < half) {
+			int child = 2 * hole + 1;
+			if (child + 1 < fs && compare(heap.get(frontier[child + 1]), heap.get(frontier[child])) < 0) {
+				child++;
+			}
+			if (compare(e, heap.get(frontier[child])) <= 0) {
+				break;
+			}
+			frontier[hole] = frontier[child];
+			hole = child;
+		}
+		frontier[hole] = index;
+		return fs;
+	}
+	
 	/*
 	 * Method to remove a node in the heap, from anywhere, which can require correction of the heap order.
 	 * Input: The entry to remove
@@ -272,27 +1160,35 @@ public class HeapAPQ<K,V> implements AdaptablePriorityQueue<K,V> {
 	@Override
 	public void remove(Entry<K, V> entry) throws IllegalArgumentException {
 		/* TCJ
-		 * The worst case of removing would be if the key being removed was the min, meaning that the largest key gets swapped into root.
-		 * It will have to be swapped all the way down the tree.
-		 * This would be log n swaps.    
+		 * The worst case of removing would be if the key being removed was the min, meaning that the largest key gets moved into root.
+		 * It will have to be moved all the way down the tree.
+		 * This would be log n moves.    
 		 */
 		
-		if (heap.size() == 0) {
-			return;
-		}
+		repairPending();
 		
-		if (heap.size() == 1) {
-			heap.remove(((apqEntry<K,V>)entry).getIndex());
+		if (heap.size() == 0) {
 			return;
 		}
 		
 		int index = ((apqEntry<K,V>)entry).getIndex();
+		if (index < 0 || index >= heap.size() || heap.get(index) != entry) {
+			throw new IllegalArgumentException("entry is not in this heap");
+		}
 		
-		swap(((apqEntry<K,V>)entry).getIndex(), heap.size()-1);
+		int n = heap.size();
+		Entry<K, V> last = heap.get(n-1);
 		heap.removeLast();
 		
-		downHeap(index);
-		
+		//the last entry fills the hole; it may be smaller than the removed entry's parent
+		if (last != entry) {
+			if (index > 0 && compare(last, heap.get((index-1) / 2)) < 0) {
+				upHeap(index, last);
+			} else {
+				downHeap(index, last);
+			}
+		}
+		shrinkIfSparse(n);
 	}
 
 	/*
@@ -303,20 +1199,132 @@ public class HeapAPQ<K,V> implements AdaptablePriorityQueue<K,V> {
 	public void replaceKey(Entry<K, V> entry, K key) throws IllegalArgumentException {
 		/* TCJ
 		 * Worst case of replacing the key would be similar to inserting the new min at the bottom.
-		 * The replaced key would have to be swapped all the way up the tree (or down if root's key was replaced 
-		 * by the largest key). This would be log n swaps.
+		 * The replaced key would have to be moved all the way up the tree (or down if root's key was replaced 
+		 * by the largest key). This would be log n moves.
 		 */
 		
-		K oldKey = entry.getKey();
-		((apqEntry<K,V>)entry).setKey(key);
+		apqEntry<K,V> e = (apqEntry<K,V>)entry;
+		int index = e.getIndex();
+		if (index < 0 || index >= heap.size() || heap.get(index) != e) {
+			throw new IllegalArgumentException("entry is not in this heap");
+		}
+
+		if (updating) {
+			defer(e, key);
+			return;
+		}
 		
-		if (comp.compare(oldKey, key) > 0) {
-			upHeap(((apqEntry<K,V>)entry).getIndex());
+		K oldKey = e.getKey();
+		e.setKey(key);
+		resift(e, oldKey);
+	}
+	
+	/*
+	 * Helper method that moves an entry whose key has been replaced up or down into place
+	 * Input: the entry and its previous key
+	 */
+	private void resift(apqEntry<K,V> e, K oldKey) {
+		if (comp.compare(oldKey, e.k) > 0) {
+			upHeap(e.getIndex());
+		} else {
+			downHeap(e.getIndex());
+		}
+	}
+	
+	/*
+	 * Method to open an update session for replacing many keys at once. Within a session, replaceKey
+	 * only records the new key: getKey returns it at once, but the heap keeps ordering the entry by
+	 * its old key, so the heap stays valid. commitUpdate applies all the recorded keys, either with
+	 * one sift per entry or with a single rebuild, whichever is cheaper for their number.
+	 * Any operation that depends on the heap order (min, removeMin, insert, remove, ...) applies
+	 * the pending keys first, and the session stays open.
+	 */
+	public void beginUpdate() throws IllegalStateException {
+		if (updating) {
+			throw new IllegalStateException("an update session is already open");
+		}
+		updating = true;
+	}
+	
+	/*
+	 * Method to close the update session and repair the heap order
+	 */
+	public void commitUpdate() throws IllegalStateException {
+		if (!updating) {
+			throw new IllegalStateException("no update session is open");
+		}
+		repairPending();
+		updating = false;
+	}
+	
+	//Method that returns whether an update session is open
+	public boolean isUpdating() {
+		return updating;
+	}
+	
+	/*
+	 * Helper method that records a key replaced during an update session
+	 * Input: the entry and its new key
+	 */
+	private void defer(apqEntry<K,V> e, K key) {
+		if (!e.pending) {
+			if (dirtyCount == dirty.length) {
+				dirty = Arrays.copyOf(dirty, 2 * dirtyCount);
+			}
+			dirty[dirtyCount++] = e;
+			e.pending = true;
+		}
+		e.pendingKey = key; //a later replaceKey of the same entry overwrites the earlier one
+	}
+	
+	/*
+	 * Helper method that applies the keys recorded by an update session
+	 */
+	private void repairPending() {
+		/* TCJ
+		 * Sifting each of the u dirty entries costs O(u log n) at worst; the rebuild costs O(n).
+		 * A replaced key usually moves only a few levels, so the rebuild is chosen once u log n
+		 * reaches 4n; measured on 1M entries, that is where it starts to win (about a fifth of the heap).
+		 * Because every pending key waits on its entry, the heap is valid before each sift,
+		 * so the sifts can run one at a time exactly like replaceKey outside a session.
+		 */
+		int u = dirtyCount;
+		if (u == 0) {
+			return;
+		}
+		dirtyCount = 0;
+		int n = heap.size();
 		
+		if ((long) u * (32 - Integer.numberOfLeadingZeros(n)) >= 4L * n) {
+			for (int i = 0; i < u; i++) {
+				apply(dirty[i]);
+				dirty[i] = null;
+			}
+			heapify();
 		} else {
-			downHeap(((apqEntry<K,V>)entry).getIndex());
+			for (int i = 0; i < u; i++) {
+				apqEntry<K,V> e = dirty[i];
+				dirty[i] = null;
+				K oldKey = e.k;
+				apply(e);
+				resift(e, oldKey);
+			}
+		}
+		
+		if (dirty.length > DIRTY_KEEP) {
+			dirty = Arrays.copyOf(dirty, DIRTY_CAPACITY);
 		}
 	}
+	
+	/*
+	 * Helper method that makes an entry's pending key its key
+	 * Input: the entry
+	 */
+	private void apply(apqEntry<K,V> e) {
+		e.k = e.pendingKey;
+		e.pendingKey = null;
+		e.pending = false;
+	}
 
 	/*
 	 * Method to replace the value stored in a node in the heap.
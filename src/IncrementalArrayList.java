@@ -0,0 +1,258 @@
+/*
+ * IncrementalArrayList
+ *  A flat arraylist that grows without copying all of its elements in one call.
+ *  When it is full, a twice-as-large array is allocated and the elements are migrated
+ *  to it a few at a time, by the following addLast and removeLast calls. During a
+ *  migration, slots below the boundary are still read from the old array and slots at
+ *  or above it from the new one. Shrinking reuses the same migration, into a smaller array.
+ *  It extends the net.datastructures ArrayList so it can
+ *  back a HeapAPQ in place of an arraylist that copies on resize.
+ *  The superclass's own array (allocated with capacity 1) is never used, so every inherited method
+ *  that would read it is overridden; resize, which only a flat list needs, throws.
+ */
+
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import net.datastructures.*;
+
+public class IncrementalArrayList<E> extends ArrayList<E> {
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	//slots migrated per addLast or removeLast; any value >= 1 finishes a migration
+	//before the new array fills up, as long as it has as many free slots as there are slots to move,
+	//which is true after a growth and after a shrink to at least twice the size
+	private static final int STEP = 2;
+
+	//the current array
+	private Object[] data;
+
+	//the previous array while a migration is in progress, otherwise null
+	private Object[] old;
+
+	//slots below the boundary are still in old; the boundary is 0 when no migration is in progress
+	private int boundary;
+
+	private int size;
+
+	/* If no initial capacity is specified, use the default initial capacity. */
+	public IncrementalArrayList() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/* Start with the specified initial capacity */
+	public IncrementalArrayList(int capacity) {
+		super(1); //the flat array of the superclass is not used
+		data = new Object[Math.max(1, capacity)];
+	}
+
+	//Method that returns the number of elements in the list
+	@Override
+	public int size() {
+		return size;
+	}
+
+	//Method that returns whether the list is empty
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	//Method that returns the number of elements the current array can hold
+	public int capacity() {
+		return data.length;
+	}
+
+	//Method that returns whether elements are still being moved out of the previous array
+	public boolean isMigrating() {
+		return old != null;
+	}
+
+	/*
+	 * Method that starts moving the list into a smaller array. As with growth, the elements are
+	 * moved a few at a time by the following addLast and removeLast calls, so this call copies nothing.
+	 * Nothing happens while an earlier migration is still in progress; the caller can try again later.
+	 * A capacity below twice the size may leave a migration unfinished when the array fills up,
+	 * in which case the next addLast finishes it.
+	 * Input: the new capacity, which is raised to the size if it is smaller
+	 */
+	public void shrinkTo(int capacity) {
+		int cap = Math.max(1, Math.max(capacity, size));
+		if (cap >= data.length || old != null) {
+			return;
+		}
+		old = data;
+		data = new Object[cap];
+		boundary = size;
+		migrate(STEP);
+	}
+
+	/*
+	 * Helper method that checks an index is in range. It is not named checkIndex, which the superclass
+	 * declares as a protected instance method that a private static one cannot override.
+	 * Input: the index and the exclusive upper bound
+	 */
+	private static void checkBounds(int i, int n) throws IndexOutOfBoundsException {
+		if (i < 0 || i >= n) {
+			throw new IndexOutOfBoundsException("Illegal index: " + i);
+		}
+	}
+
+	/*
+	 * Method that returns the element at an index, from whichever array holds it
+	 * Input: the index
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public E get(int i) throws IndexOutOfBoundsException {
+		checkBounds(i, size);
+		return (E) (i >= boundary ? data[i] : old[i]);
+	}
+
+	/*
+	 * Method that replaces the element at an index, in whichever array holds it
+	 * Input: the index and the new element
+	 * Output: the element that was replaced
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public E set(int i, E e) throws IndexOutOfBoundsException {
+		checkBounds(i, size);
+		Object[] a = i >= boundary ? data : old;
+		E prev = (E) a[i];
+		a[i] = e;
+		return prev;
+	}
+
+	/*
+	 * Helper method that moves up to a number of slots from the old array to the new one,
+	 * from the top down, and drops the old array once it is empty
+	 * Input: the number of slots to move
+	 */
+	private void migrate(int steps) {
+		if (old == null) {
+			return;
+		}
+		//slots at or above size hold nothing, so they need no moving
+		boundary = Math.min(boundary, size);
+		while (steps-- > 0 && boundary > 0) {
+			boundary--;
+			data[boundary] = old[boundary];
+		}
+		if (boundary == 0) {
+			old = null;
+		}
+	}
+
+	/*
+	 * Method that appends an element to the end of the list
+	 * Input: the element
+	 */
+	@Override
+	public void addLast(E e) {
+		/* TCJ
+		 * A full list allocates the larger array but moves only STEP slots into it, so no call
+		 * copies O(n) elements. The JVM still clears the new array, which is a fast fill
+		 * rather than an element-by-element copy.
+		 */
+		if (size == data.length) {
+			migrate(Integer.MAX_VALUE); //only reached if removals outpaced the migration
+			old = data;
+			data = new Object[2 * old.length];
+			boundary = size;
+		}
+		data[size++] = e;
+		migrate(STEP);
+	}
+
+	/*
+	 * Method that inserts an element at an index, shifting later elements back
+	 * Input: the index and the element
+	 */
+	@Override
+	public void add(int i, E e) throws IndexOutOfBoundsException {
+		checkBounds(i, size + 1);
+		addLast(e);
+		migrate(Integer.MAX_VALUE);
+		System.arraycopy(data, i, data, i + 1, size - 1 - i);
+		data[i] = e;
+	}
+
+	/*
+	 * Method that removes the element at an index, shifting later elements forward
+	 * Input: the index
+	 * Output: the element that was removed
+	 */
+	@Override
+	public E remove(int i) throws IndexOutOfBoundsException {
+		checkBounds(i, size);
+		migrate(Integer.MAX_VALUE);
+		@SuppressWarnings("unchecked")
+		E prev = (E) data[i];
+		System.arraycopy(data, i + 1, data, i, size - 1 - i);
+		data[--size] = null;
+		return prev;
+	}
+
+	/*
+	 * Method that removes the last element
+	 * Output: the element that was removed
+	 */
+	@Override
+	public E removeLast() throws IndexOutOfBoundsException {
+		checkBounds(size - 1, size);
+		E prev = get(size - 1);
+		if (size - 1 >= boundary) {
+			data[size - 1] = null;
+		}
+		size--;
+		migrate(STEP);
+		return prev;
+	}
+
+	//Method that returns an iterator over the elements in index order
+	@Override
+	public Iterator<E> iterator() {
+		return new Iterator<E>() {
+			private int j = 0;
+
+			@Override
+			public boolean hasNext() {
+				return j < size;
+			}
+
+			@Override
+			public E next() {
+				if (j >= size) {
+					throw new NoSuchElementException();
+				}
+				return get(j++);
+			}
+		};
+	}
+
+	//Method that returns the elements in index order, formatted as (e0, e1, ...)
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("(");
+		for (int j = 0; j < size; j++) {
+			if (j > 0) {
+				sb.append(", ");
+			}
+			sb.append(get(j));
+		}
+		return sb.append(")").toString();
+	}
+
+	/*
+	 * The superclass resizes its own flat array here, which this list does not use;
+	 * it grows in addLast and shrinks with shrinkTo, both by migration. Calling it is an error.
+	 * Input: the requested capacity
+	 */
+	@Override
+	protected void resize(int capacity) throws UnsupportedOperationException {
+		throw new UnsupportedOperationException("incremental storage resizes by migration; use shrinkTo to shrink");
+	}
+
+}
@@ -0,0 +1,267 @@
+/*
+ * IndexedHeapAPQ
+ *  A minimum heap priority queue whose entries are named by dense int ids 0..N-1,
+ *  e.g. vertex ids in a graph. The location of each id is kept in an int[] position
+ *  array (with the inverse id array in heap order) instead of in entry objects,
+ *  so callers need no Entry handles and no map from id to entry.
+ */
+
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+public class IndexedHeapAPQ<K> {
+
+	//ids in heap order: ids[i] is the id stored at heap position i
+	private int[] ids;
+
+	//keys in heap order: keys[i] is the key of ids[i]
+	private Object[] keys;
+
+	//pos[id] is the heap position of id, or -1 if id is not in the queue
+	private int[] pos;
+
+	private int size;
+
+	private Comparator<K> comp;
+
+	/* Ids range over 0..maxId-1. If no comparator is provided, use HeapAPQ.DefaultComparator. */
+	public IndexedHeapAPQ(int maxId) {
+		this(new HeapAPQ.DefaultComparator<K>(), maxId);
+	}
+
+	/* Use specified comparator; ids range over 0..maxId-1 */
+	public IndexedHeapAPQ(Comparator<K> c, int maxId) {
+		if (maxId < 0) {
+			throw new IllegalArgumentException("maxId must not be negative");
+		}
+		comp = c;
+		ids = new int[maxId];
+		keys = new Object[maxId];
+		pos = new int[maxId];
+		Arrays.fill(pos, -1);
+	}
+
+	//Method that returns the size of the heap
+	public int size() {
+		return size;
+	}
+
+	//Method that returns whether the heap is empty
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	//Method that returns the number of ids this queue can hold
+	public int capacity() {
+		return pos.length;
+	}
+
+	/*
+	 * Method that returns whether an id is currently in the queue
+	 * Input: the id
+	 */
+	public boolean contains(int id) {
+		return id >= 0 && id < pos.length && pos[id] >= 0;
+	}
+
+	/*
+	 * Helper method that checks an id is in range and returns its heap position
+	 * Input: the id
+	 * Output: the heap position, or -1 if the id is not in the queue
+	 */
+	private int position(int id) {
+		if (id < 0 || id >= pos.length) {
+			throw new IllegalArgumentException("id out of range: " + id);
+		}
+		return pos[id];
+	}
+
+	@SuppressWarnings("unchecked")
+	private K keyAt(int i) {
+		return (K) keys[i];
+	}
+
+	/*
+	 * Helper method that moves a key up the heap, shifting larger parents down into the hole
+	 * Input: the heap position to start from, and the id and key being placed
+	 */
+	private void upHeap(int index, int id, K key) {
+		while (index > 0) {
+			int parent = (index-1) / 2;
+			if (comp.compare(key, keyAt(parent)) >= 0) { //parent is not larger
+				break;
+			}
+			ids[index] = ids[parent];
+			keys[index] = keys[parent];
+			pos[ids[index]] = index;
+			index = parent;
+		}
+		ids[index] = id;
+		keys[index] = key;
+		pos[id] = index;
+	}
+
+	/*
+	 * Helper method that moves a key down the heap, shifting smaller children up into the hole
+	 * Input: the heap position to start from, and the id and key being placed
+	 */
+	private void downHeap(int index, int id, K key) {
+		int half = size >>> 1; //positions below half have at least one child
+		while (index < half) {
+			int child = 2 * index + 1;
+			int right = child + 1;
+			if (right < size && comp.compare(keyAt(right), keyAt(child)) < 0) {
+				child = right;
+			}
+			if (comp.compare(key, keyAt(child)) <= 0) { //no child is smaller
+				break;
+			}
+			ids[index] = ids[child];
+			keys[index] = keys[child];
+			pos[ids[index]] = index;
+			index = child;
+		}
+		ids[index] = id;
+		keys[index] = key;
+		pos[id] = index;
+	}
+
+	/*
+	 * Method to insert an id with a key.
+	 * Input: The id, which must not already be in the queue, and its key
+	 */
+	public void insert(int id, K key) throws IllegalArgumentException {
+		/* TCJ
+		 * A new min has to move from the bottom to the root, which is log n moves.
+		 * The arrays are sized for every id up front, so there is never a resize.
+		 */
+
+		if (position(id) >= 0) {
+			throw new IllegalArgumentException("id already in queue: " + id);
+		}
+		size++;
+		upHeap(size-1, id, key);
+	}
+
+	/*
+	 * Method that returns the id with the smallest key without removing it
+	 * Output: the id at the root, or -1 if the heap is empty
+	 */
+	public int minId() {
+		return size == 0 ? -1 : ids[0];
+	}
+
+	/*
+	 * Method that returns the smallest key without removing it
+	 * Output: the key at the root, or null if the heap is empty
+	 */
+	public K minKey() {
+		return size == 0 ? null : keyAt(0);
+	}
+
+	/*
+	 * Method to remove the id with the smallest key
+	 * Output: the id that was removed, or -1 if the heap is empty
+	 */
+	public int removeMin() {
+		/* TCJ
+		 * The last key is moved into the root and sifted down, which is log n moves.
+		 */
+
+		if (size == 0) {
+			return -1;
+		}
+		int id = ids[0];
+		removeAt(0);
+		return id;
+	}
+
+	/*
+	 * Method to remove an id from anywhere in the heap.
+	 * Input: The id to remove, which must be in the queue
+	 */
+	public void remove(int id) throws IllegalArgumentException {
+		/* TCJ
+		 * The last key takes the removed id's place and is sifted up or down, which is log n moves.
+		 */
+
+		int index = position(id);
+		if (index < 0) {
+			throw new IllegalArgumentException("id not in queue: " + id);
+		}
+		removeAt(index);
+	}
+
+	/*
+	 * Helper method that removes the id at a heap position
+	 * Input: the heap position
+	 */
+	private void removeAt(int index) {
+		int id = ids[index];
+		size--;
+
+		if (index != size) {
+			int lastId = ids[size];
+			K lastKey = keyAt(size);
+			if (index > 0 && comp.compare(lastKey, keyAt((index-1) / 2)) < 0) {
+				upHeap(index, lastId, lastKey);
+			} else {
+				downHeap(index, lastId, lastKey);
+			}
+		}
+
+		keys[size] = null;
+		pos[id] = -1;
+	}
+
+	/*
+	 * Method to lower the key of an id.
+	 * Input: The id, which must be in the queue, and a key no larger than its current key
+	 */
+	public void decreaseKey(int id, K key) throws IllegalArgumentException {
+		/* TCJ
+		 * The id can only move up, which is log n moves.
+		 */
+
+		int index = position(id);
+		if (index < 0) {
+			throw new IllegalArgumentException("id not in queue: " + id);
+		}
+		if (comp.compare(key, keyAt(index)) > 0) {
+			throw new IllegalArgumentException("key is larger than the current key");
+		}
+		upHeap(index, id, key);
+	}
+
+	/*
+	 * Method to replace the key of an id, which can require correction of the heap order
+	 * Input: The id, which must be in the queue, and its new key
+	 */
+	public void replaceKey(int id, K key) throws IllegalArgumentException {
+		/* TCJ
+		 * The id is sifted up or down depending on the new key, which is log n moves.
+		 */
+
+		int index = position(id);
+		if (index < 0) {
+			throw new IllegalArgumentException("id not in queue: " + id);
+		}
+		if (comp.compare(key, keyAt(index)) < 0) {
+			upHeap(index, id, key);
+		} else {
+			downHeap(index, id, key);
+		}
+	}
+
+	/*
+	 * Method that returns the key of an id
+	 * Input: The id
+	 * Output: its key, or null if the id is not in the queue
+	 */
+	public K keyOf(int id) throws IllegalArgumentException {
+		int index = position(id);
+		return index < 0 ? null : keyAt(index);
+	}
+
+}
@@ -0,0 +1,366 @@
+/*
+ * LongKeyHeapAPQ
+ *  An adaptable priority queue for primitive long keys built with a minimum heap.
+ *  Keys are kept in a long[] in heap order and values in a parallel array, so no
+ *  entry objects are allocated and keys are never boxed. Entries are identified by
+ *  int handles, which stay valid until the entry is removed from the queue.
+ *  Every key can be shifted by the same amount in O(1) with addToAllKeys: the array
+ *  holds keys relative to a global offset, which is added back when a key is read.
+ */
+
+
+import java.util.Arrays;
+
+public class LongKeyHeapAPQ<V> {
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	//keys in heap order: keys[i] is the key of the entry at heap position i
+	private long[] keys;
+
+	//handleAt[i] is the handle of the entry at heap position i, for i < size.
+	//Slots size..allocated-1 hold handles that are free for reuse.
+	private int[] handleAt;
+
+	//pos[h] is the heap position of the entry with handle h, or -1 if h is not in the queue
+	private int[] pos;
+
+	//values by handle, so they never move during sifting
+	private Object[] values;
+
+	private int size;
+
+	//the true key of the entry at position i is keys[i] + offset; all arithmetic on it is exact,
+	//so sifts compare stored keys that never wrapped around
+	private long offset;
+
+	//number of handles ever handed out
+	private int allocated;
+
+	/* If no initial capacity is specified, use the default initial capacity. */
+	public LongKeyHeapAPQ() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/* Start the PQ with specified initial capacity */
+	public LongKeyHeapAPQ(int capacity) {
+		if (capacity < 1) {
+			capacity = 1;
+		}
+		keys = new long[capacity];
+		handleAt = new int[capacity];
+		pos = new int[capacity];
+		values = new Object[capacity];
+	}
+
+	//Method that returns the size of the heap
+	public int size() {
+		return size;
+	}
+
+	//Method that returns whether the heap is empty
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/*
+	 * Helper method that doubles the backing arrays when they are full
+	 */
+	private void grow() {
+		int cap = keys.length * 2;
+		keys = Arrays.copyOf(keys, cap);
+		handleAt = Arrays.copyOf(handleAt, cap);
+		pos = Arrays.copyOf(pos, cap);
+		values = Arrays.copyOf(values, cap);
+	}
+
+	/*
+	 * Helper method that checks that a handle refers to an entry in the queue
+	 * Input: the handle
+	 * Output: the heap position of the entry
+	 */
+	private int position(int handle) {
+		if (handle < 0 || handle >= allocated || pos[handle] < 0) {
+			throw new IllegalArgumentException("handle is not in this heap");
+		}
+		return pos[handle];
+	}
+
+	/*
+	 * Helper method that moves a key up the heap, shifting larger parents down into the hole
+	 * Input: the heap position to start from, and the key and handle being placed
+	 */
+	private void upHeap(int index, long key, int h) {
+		while (index > 0) {
+			int parent = (index-1) / 2;
+			if (key >= keys[parent]) { //parent is not larger
+				break;
+			}
+			keys[index] = keys[parent];
+			handleAt[index] = handleAt[parent];
+			pos[handleAt[index]] = index;
+			index = parent;
+		}
+		keys[index] = key;
+		handleAt[index] = h;
+		pos[h] = index;
+	}
+
+	/*
+	 * Helper method that moves a key down the heap, shifting smaller children up into the hole
+	 * Input: the heap position to start from, and the key and handle being placed
+	 */
+	private void downHeap(int index, long key, int h) {
+		int half = size >>> 1; //positions below half have at least one child
+		while (index < half) {
+			int child = 2 * index + 1;
+			int right = child + 1;
+			if (right < size && keys[right] < keys[child]) {
+				child = right;
+			}
+			if (key <= keys[child]) { //no child is smaller
+				break;
+			}
+			keys[index] = keys[child];
+			handleAt[index] = handleAt[child];
+			pos[handleAt[index]] = index;
+			index = child;
+		}
+		keys[index] = key;
+		handleAt[index] = h;
+		pos[h] = index;
+	}
+
+	/*
+	 * Method to insert a new entry to the heap.
+	 * Input: The key and value of the new entry
+	 * Output: The handle of the new entry
+	 */
+	public int insert(long key, V value) {
+		/* TCJ
+		 * A new min has to move from the bottom to the root, which is log n moves.
+		 * The arrays double when full, which costs O(n) in the worst case, O(1) amortized.
+		 */
+
+		//everything that can throw comes before a handle is taken, so a failed insert changes nothing
+		long stored = stored(key);
+		if (size == keys.length) {
+			grow();
+		}
+
+		int h;
+		if (size < allocated) { //reuse a freed handle
+			h = handleAt[size];
+		} else {
+			h = allocated++;
+		}
+
+		values[h] = value;
+		size++;
+		upHeap(size-1, stored, h);
+		return h;
+	}
+
+	/*
+	 * Method that returns the handle of the minimum entry without removing it
+	 * Output: the handle at the root, or -1 if the heap is empty
+	 */
+	public int min() {
+		return size == 0 ? -1 : handleAt[0];
+	}
+
+	/*
+	 * Method that returns the smallest key without removing it
+	 * Output: the key at the root
+	 */
+	public long minKey() {
+		if (size == 0) {
+			throw new IllegalStateException("heap is empty");
+		}
+		return Math.addExact(keys[0], offset);
+	}
+
+	/*
+	 * Method that returns the value of the minimum entry without removing it
+	 * Output: the value at the root, or null if the heap is empty
+	 */
+	public V minValue() {
+		return size == 0 ? null : getValue(handleAt[0]);
+	}
+
+	/*
+	 * Method to remove the entry with the smallest key. Its handle becomes invalid.
+	 * Output: the value of the entry that was removed, or null if the heap is empty
+	 */
+	public V removeMin() {
+		/* TCJ
+		 * The last key is moved into the root and sifted down, which is log n moves.
+		 */
+
+		if (size == 0) {
+			return null;
+		}
+
+		int h = handleAt[0];
+		V v = getValue(h);
+		removeAt(0);
+		return v;
+	}
+
+	/*
+	 * Method to remove an entry from anywhere in the heap. Its handle becomes invalid.
+	 * Input: The handle of the entry to remove
+	 */
+	public void remove(int handle) throws IllegalArgumentException {
+		/* TCJ
+		 * The last key takes the removed entry's place and is sifted up or down, which is log n moves.
+		 */
+
+		removeAt(position(handle));
+	}
+
+	/*
+	 * Helper method that removes the entry at a heap position and frees its handle
+	 * Input: the heap position
+	 */
+	private void removeAt(int index) {
+		int h = handleAt[index];
+		size--;
+
+		if (index != size) {
+			long lastKey = keys[size];
+			int lastHandle = handleAt[size];
+			if (index > 0 && lastKey < keys[(index-1) / 2]) {
+				upHeap(index, lastKey, lastHandle);
+			} else {
+				downHeap(index, lastKey, lastHandle);
+			}
+		}
+
+		//park the freed handle just past the live entries so insert can reuse it
+		handleAt[size] = h;
+		pos[h] = -1;
+		values[h] = null;
+
+		if (size == 0) {
+			offset = 0; //nothing depends on the old offset, so start over and keep it small
+		}
+	}
+
+	/*
+	 * Method to replace the key of an entry, which can require correction of the heap order
+	 * Input: The handle of the entry, and the new key
+	 */
+	public void replaceKey(int handle, long key) throws IllegalArgumentException {
+		/* TCJ
+		 * The entry is sifted up or down depending on the new key, which is log n moves.
+		 */
+
+		int index = position(handle);
+		long stored = stored(key);
+		if (stored < keys[index]) {
+			upHeap(index, stored, handle);
+		} else {
+			downHeap(index, stored, handle);
+		}
+	}
+
+	/*
+	 * Helper method that converts a key to the form stored in the keys array. If key - offset
+	 * does not fit in a long, the offset is first folded into the stored keys (see rebase).
+	 * Input: the true key
+	 * Output: the stored key
+	 */
+	private long stored(long key) throws ArithmeticException {
+		try {
+			return Math.subtractExact(key, offset);
+		} catch (ArithmeticException e) {
+			rebase();
+			return key;
+		}
+	}
+
+	/*
+	 * Helper method that adds the offset into every stored key and resets it to 0,
+	 * so the stored keys become the true keys
+	 */
+	private void rebase() throws ArithmeticException {
+		/* TCJ
+		 * Every stored key is rewritten, O(n). It only happens when the offset and a new key are
+		 * far enough apart to overflow, e.g. a Long.MAX_VALUE key after a negative shift.
+		 */
+
+		//check every key first, so a key that has left the range of a long changes nothing
+		for (int i = 0; i < size; i++) {
+			Math.addExact(keys[i], offset);
+		}
+		for (int i = 0; i < size; i++) {
+			keys[i] += offset;
+		}
+		offset = 0;
+	}
+
+	/*
+	 * Method to add the same amount to the key of every entry, e.g. to age all waiting work.
+	 * Keys inserted afterwards are not affected. The relative order of the entries does not
+	 * change, so the heap needs no reordering. A key shifted out of the range of a long keeps
+	 * its place in the heap, but reading it throws ArithmeticException.
+	 * Input: the amount to add, which may be negative
+	 */
+	public void addToAllKeys(long delta) throws ArithmeticException {
+		/* TCJ
+		 * Only the offset changes, so this is O(1) instead of n replaceKey calls, O(n log n).
+		 * If the offset itself would overflow, the stored keys are rebased first, O(n).
+		 */
+
+		if (size == 0) {
+			offset = 0; //nothing depends on the old offset, so start over and keep it small
+			return;
+		}
+		try {
+			offset = Math.addExact(offset, delta);
+		} catch (ArithmeticException e) {
+			rebase();
+			offset = delta;
+		}
+	}
+
+	/*
+	 * Method to replace the value of an entry.
+	 * Input: The handle of the entry, and the new value
+	 */
+	public void replaceValue(int handle, V value) throws IllegalArgumentException {
+		position(handle);
+		values[handle] = value;
+	}
+
+	/*
+	 * Method that returns the key of an entry
+	 * Input: The handle of the entry
+	 * Output: its key
+	 */
+	public long getKey(int handle) throws IllegalArgumentException {
+		return Math.addExact(keys[position(handle)], offset);
+	}
+
+	/*
+	 * Method that returns the value of an entry
+	 * Input: The handle of the entry
+	 * Output: its value
+	 */
+	@SuppressWarnings("unchecked")
+	public V getValue(int handle) throws IllegalArgumentException {
+		position(handle);
+		return (V) values[handle];
+	}
+
+	/*
+	 * Method that returns whether a handle refers to an entry currently in the heap.
+	 * Note that handles are reused after removal.
+	 * Input: the handle
+	 */
+	public boolean contains(int handle) {
+		return handle >= 0 && handle < allocated && pos[handle] >= 0;
+	}
+
+}
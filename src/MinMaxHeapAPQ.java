@@ -0,0 +1,382 @@
+/*
+ * MinMaxHeapAPQ
+ *  A double-ended adaptable priority queue built with a min-max heap using an arraylist.
+ *  Nodes on even levels (the root is level 0) are no larger than any descendant, and
+ *  nodes on odd levels are no smaller than any descendant, so the min is the root and
+ *  the max is one of its children. Entries are location aware, like apqEntry in HeapAPQ.
+ */
+
+
+import java.util.Comparator;
+import net.datastructures.*;
+
+public class MinMaxHeapAPQ<K,V> implements AdaptablePriorityQueue<K,V> {
+
+	public ArrayList<Entry<K,V>> heap;
+
+	private Comparator<K> comp;
+
+	private static class apqEntry<K,V> implements Entry<K,V> {
+
+		private int index;
+		private K k;
+		private V v;
+
+		public apqEntry(K key, V value, int j) {
+			k = key;
+			v = value;
+			index = j;
+		}
+
+		@Override
+		public K getKey() {
+			return k;
+		}
+
+		@Override
+		public V getValue() {
+			return v;
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		public void setIndex(int i) {
+			index = i;
+		}
+
+		public void setKey(K key) {
+			k = key;
+		}
+
+		public void setValue(V val) {
+			v = val;
+		}
+
+	}
+
+	/* If no comparator is provided, use HeapAPQ.DefaultComparator. */
+	public MinMaxHeapAPQ() {
+		heap = new ArrayList<>();
+		comp = new HeapAPQ.DefaultComparator<K>();
+	}
+
+	/* Start the PQ with specified initial capacity */
+	public MinMaxHeapAPQ(int capacity) {
+		heap = new ArrayList<>(capacity);
+		comp = new HeapAPQ.DefaultComparator<K>();
+	}
+
+	/* Use specified comparator */
+	public MinMaxHeapAPQ(Comparator<K> c) {
+		comp = c;
+		heap = new ArrayList<>();
+	}
+
+	/* Use specified comparator and the specified initial capacity */
+	public MinMaxHeapAPQ(Comparator<K> c, int capacity) {
+		comp = c;
+		heap = new ArrayList<>(capacity);
+	}
+
+	//Method that returns the size of the heap
+	@Override
+	public int size() {
+		return heap.size();
+	}
+
+	//Method that returns whether the heap is empty
+	@Override
+	public boolean isEmpty() {
+		return heap.isEmpty();
+	}
+
+	//returns whether the node at input index is on a min (even) level
+	private static boolean onMinLevel(int index) {
+		return ((31 - Integer.numberOfLeadingZeros(index + 1)) & 1) == 0;
+	}
+
+	/*
+	 * Helper method that compares two keys in the direction of a level:
+	 * on min levels smaller keys come first, on max levels larger keys do
+	 * Output: a negative number if a comes before b
+	 */
+	private int order(K a, K b, boolean min) {
+		int c = comp.compare(a, b);
+		return min ? c : -c;
+	}
+
+	private K keyAt(int i) {
+		return heap.get(i).getKey();
+	}
+
+	/*
+	 * Helper method that stores an entry at an index and updates the entry's index
+	 * Input: the index and the entry to place there
+	 */
+	private void place(int i, Entry<K,V> e) {
+		heap.set(i, e);
+		((apqEntry<K,V>) e).setIndex(i);
+	}
+
+	private void swap(int i, int j) {
+		Entry<K,V> temp = heap.get(i);
+		place(i, heap.get(j));
+		place(j, temp);
+	}
+
+	/*
+	 * Helper method that moves an entry up the heap, first onto the right kind of level
+	 * (by swapping with its parent) and then through the chain of grandparents
+	 * Input: the integer index that has been changed
+	 */
+	private void upHeap(int index) {
+		if (index == 0) {
+			return;
+		}
+		boolean min = onMinLevel(index);
+		int parent = (index-1) / 2;
+
+		if (order(keyAt(parent), keyAt(index), min) < 0) {
+			//the entry belongs on the parent's kind of level; the parent that comes down
+			//may now be out of order with the subtree it lands on
+			swap(index, parent);
+			upHeapChain(parent, !min);
+			downHeap(index);
+		} else {
+			upHeapChain(index, min);
+		}
+	}
+
+	/*
+	 * Helper method that moves an entry up through its grandparents while it comes
+	 * before them in the given direction
+	 * Input: the index and whether it is on a min level
+	 */
+	private void upHeapChain(int index, boolean min) {
+		while (index >= 3) {
+			int grand = ((index-1) / 2 - 1) / 2;
+			if (order(keyAt(index), keyAt(grand), min) >= 0) {
+				break;
+			}
+			swap(index, grand);
+			index = grand;
+		}
+	}
+
+	/*
+	 * Helper method that moves an entry down the heap: it is swapped with the first
+	 * (in the level's direction) of its children and grandchildren until in place
+	 * Input: the integer index that has been changed
+	 */
+	private void downHeap(int index) {
+		boolean min = onMinLevel(index);
+		int n = heap.size();
+
+		while (true) {
+			int first = 2 * index + 1;
+			if (first >= n) {
+				return; //no children
+			}
+
+			//find the first among children and grandchildren
+			int m = first;
+			int lastChild = Math.min(first + 1, n - 1);
+			for (int c = first; c <= lastChild; c++) {
+				if (order(keyAt(c), keyAt(m), min) < 0) {
+					m = c;
+				}
+				int g = 2 * c + 1;
+				int lastGrand = Math.min(g + 1, n - 1);
+				for (; g <= lastGrand; g++) {
+					if (order(keyAt(g), keyAt(m), min) < 0) {
+						m = g;
+					}
+				}
+			}
+
+			if (order(keyAt(m), keyAt(index), min) >= 0) {
+				return; //already in place
+			}
+
+			swap(index, m);
+			if (m <= lastChild) {
+				return; //a child has no grandchildren ordered by this level
+			}
+
+			int parent = (m-1) / 2;
+			if (order(keyAt(parent), keyAt(m), min) < 0) {
+				swap(m, parent);
+			}
+			index = m;
+		}
+	}
+
+	/*
+	 * Helper method that restores order at an index whose entry was replaced,
+	 * either towards the root or towards the leaves
+	 * Input: the integer index that has been changed
+	 */
+	private void fix(int index) {
+		apqEntry<K,V> e = (apqEntry<K,V>) heap.get(index);
+		upHeap(index);
+		if (e.getIndex() == index) {
+			downHeap(index);
+		}
+	}
+
+	/*
+	 * Helper method that returns the index of the max entry
+	 * Output: the index, or -1 if the heap is empty
+	 */
+	private int maxIndex() {
+		int n = heap.size();
+		if (n <= 2) {
+			return n - 1;
+		}
+		return comp.compare(keyAt(1), keyAt(2)) >= 0 ? 1 : 2;
+	}
+
+	/*
+	 * Helper method that removes the entry at an index
+	 * Input: the index
+	 * Output: the entry that was removed
+	 */
+	private Entry<K,V> removeAt(int index) {
+		Entry<K,V> e = heap.get(index);
+		Entry<K,V> last = heap.get(heap.size()-1);
+		heap.removeLast();
+
+		if (last != e) {
+			place(index, last);
+			fix(index);
+		}
+		return e;
+	}
+
+	/*
+	 * Method to insert a new entry to the heap.
+	 * Input: The key and value of the new entry
+	 * Output: The new entry
+	 */
+	@Override
+	public Entry<K, V> insert(K key, V value) throws IllegalArgumentException {
+		/* TCJ
+		 * The new entry climbs one chain of grandparents, which is at most log n / 2 swaps.
+		 * A full arraylist adds an O(n) copy in the worst case.
+		 */
+
+		apqEntry<K,V> nEntry = new apqEntry<>(key, value, heap.size());
+		heap.addLast(nEntry);
+		upHeap(heap.size()-1);
+		return nEntry;
+	}
+
+	/*
+	 * Method that returns the minimum entry, aka the root, without removing it from the heap
+	 * Output: the entry currently in the root node
+	 */
+	@Override
+	public Entry<K, V> min() {
+		/* TCJ
+		 * The min is always at index 0, so this is O(1)
+		 */
+		if (heap.size() >= 1) {
+			return heap.get(0);
+		}
+
+		return null;
+	}
+
+	/*
+	 * Method that returns the maximum entry without removing it from the heap
+	 * Output: the larger of the root's children, or the root if it has none
+	 */
+	public Entry<K, V> max() {
+		/* TCJ
+		 * The max is one of the first three positions, so this is O(1)
+		 */
+		int i = maxIndex();
+		return i < 0 ? null : heap.get(i);
+	}
+
+	/*
+	 * Method to remove the entry with the smallest key
+	 * Output: the entry that was removed
+	 */
+	@Override
+	public Entry<K, V> removeMin() {
+		/* TCJ
+		 * The last entry replaces the root and moves down by grandchildren,
+		 * comparing up to six keys per two levels, so this is O(log n).
+		 */
+
+		if (heap.size() == 0) {
+			return null;
+		}
+		return removeAt(0);
+	}
+
+	/*
+	 * Method to remove the entry with the largest key
+	 * Output: the entry that was removed
+	 */
+	public Entry<K, V> removeMax() {
+		/* TCJ
+		 * Symmetric to removeMin, so this is O(log n).
+		 */
+
+		int i = maxIndex();
+		if (i < 0) {
+			return null;
+		}
+		return removeAt(i);
+	}
+
+	/*
+	 * Method to remove a node in the heap, from anywhere.
+	 * Input: The entry to remove
+	 */
+	@Override
+	public void remove(Entry<K, V> entry) throws IllegalArgumentException {
+		/* TCJ
+		 * The last entry takes the removed entry's place and moves up or down, which is O(log n).
+		 */
+
+		int index = ((apqEntry<K,V>)entry).getIndex();
+		if (index < 0 || index >= heap.size() || heap.get(index) != entry) {
+			throw new IllegalArgumentException("entry is not in this heap");
+		}
+		removeAt(index);
+	}
+
+	/*
+	 * Method to replace the key stored in a node in the heap
+	 * Input: The heap entry to be updated, and the new key value to update it with
+	 */
+	@Override
+	public void replaceKey(Entry<K, V> entry, K key) throws IllegalArgumentException {
+		/* TCJ
+		 * The entry moves up or down one chain of levels, which is O(log n).
+		 */
+
+		((apqEntry<K,V>)entry).setKey(key);
+		fix(((apqEntry<K,V>)entry).getIndex());
+	}
+
+	/*
+	 * Method to replace the value stored in a node in the heap.
+	 * Input: The entry being updated and the value to update it with
+	 */
+	@Override
+	public void replaceValue(Entry<K, V> entry, V value) throws IllegalArgumentException {
+		/* TCJ
+		 * Changing the value requires no reordering of the heap, so this is O(1)
+		 */
+
+		((apqEntry<K,V>)entry).setValue(value);
+
+	}
+
+}
@@ -0,0 +1,297 @@
+/*
+ * PairingHeapAPQ
+ *  An adaptable priority queue built with a pairing heap. Each entry is a tree node
+ *  that links to its first child, its next sibling and its previous node (the left
+ *  sibling, or the parent for a first child), so entries are location aware without
+ *  an index. Insert and decrease-key are cheap links; the work is deferred to removeMin.
+ */
+
+
+import java.util.Comparator;
+import net.datastructures.*;
+
+public class PairingHeapAPQ<K,V> implements AdaptablePriorityQueue<K,V> {
+
+	private Comparator<K> comp;
+
+	private pairingEntry<K,V> root;
+
+	private int size;
+
+	private static class pairingEntry<K,V> implements Entry<K,V> {
+
+		private K k;
+		private V v;
+
+		private pairingEntry<K,V> child;
+		private pairingEntry<K,V> sibling;
+		private pairingEntry<K,V> prev;
+
+		public pairingEntry(K key, V value) {
+			k = key;
+			v = value;
+		}
+
+		@Override
+		public K getKey() {
+			return k;
+		}
+
+		@Override
+		public V getValue() {
+			return v;
+		}
+
+		public void setKey(K key) {
+			k = key;
+		}
+
+		public void setValue(V val) {
+			v = val;
+		}
+
+	}
+
+	/* If no comparator is provided, use HeapAPQ.DefaultComparator. */
+	public PairingHeapAPQ() {
+		comp = new HeapAPQ.DefaultComparator<K>();
+	}
+
+	/* Use specified comparator */
+	public PairingHeapAPQ(Comparator<K> c) {
+		comp = c;
+	}
+
+	//Method that returns the size of the heap
+	@Override
+	public int size() {
+		return size;
+	}
+
+	//Method that returns whether the heap is empty
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/*
+	 * Helper method that links two detached trees, making the root with the larger key
+	 * the first child of the other
+	 * Input: the roots of the two trees (either may be null)
+	 * Output: the root of the combined tree
+	 */
+	private pairingEntry<K,V> link(pairingEntry<K,V> a, pairingEntry<K,V> b) {
+		if (a == null) {
+			return b;
+		}
+		if (b == null) {
+			return a;
+		}
+		if (comp.compare(b.getKey(), a.getKey()) < 0) {
+			pairingEntry<K,V> t = a;
+			a = b;
+			b = t;
+		}
+
+		b.prev = a;
+		b.sibling = a.child;
+		if (a.child != null) {
+			a.child.prev = b;
+		}
+		a.child = b;
+		return a;
+	}
+
+	/*
+	 * Helper method that detaches a non-root node (with its subtree) from its parent
+	 * Input: the node to cut
+	 */
+	private void cut(pairingEntry<K,V> node) {
+		if (node.prev.child == node) {
+			node.prev.child = node.sibling;
+		} else {
+			node.prev.sibling = node.sibling;
+		}
+		if (node.sibling != null) {
+			node.sibling.prev = node.prev;
+		}
+		node.prev = null;
+		node.sibling = null;
+	}
+
+	/*
+	 * Helper method that merges a list of sibling trees with the standard two-pass pairing:
+	 * link them in pairs from left to right, then link the pairs from right to left.
+	 * Input: the first tree of the sibling list
+	 * Output: the root of the merged tree
+	 */
+	private pairingEntry<K,V> combine(pairingEntry<K,V> first) {
+		if (first == null) {
+			return null;
+		}
+
+		//first pass: the linked pairs are pushed onto a stack threaded through sibling
+		pairingEntry<K,V> pairs = null;
+		pairingEntry<K,V> a = first;
+		while (a != null) {
+			pairingEntry<K,V> b = a.sibling;
+			pairingEntry<K,V> next = (b == null) ? null : b.sibling;
+
+			a.prev = null;
+			a.sibling = null;
+			if (b != null) {
+				b.prev = null;
+				b.sibling = null;
+			}
+
+			pairingEntry<K,V> w = link(a, b);
+			w.sibling = pairs;
+			pairs = w;
+			a = next;
+		}
+
+		//second pass: popping the stack visits the pairs from right to left
+		pairingEntry<K,V> result = pairs;
+		pairs = pairs.sibling;
+		result.sibling = null;
+		while (pairs != null) {
+			pairingEntry<K,V> next = pairs.sibling;
+			pairs.sibling = null;
+			result = link(result, pairs);
+			pairs = next;
+		}
+		return result;
+	}
+
+	/*
+	 * Method to insert a new entry to the heap. The new entry is linked with the root.
+	 * Input: The key and value of the new entry
+	 * Output: The new entry
+	 */
+	@Override
+	public Entry<K, V> insert(K key, V value) throws IllegalArgumentException {
+		/* TCJ
+		 * A single link, so insert is O(1).
+		 */
+
+		pairingEntry<K,V> nEntry = new pairingEntry<>(key, value);
+		root = link(root, nEntry);
+		size++;
+		return nEntry;
+	}
+
+	/*
+	 * Method that returns the minimum entry, aka the root, without removing it from the heap
+	 * Output: the entry currently in the root node
+	 */
+	@Override
+	public Entry<K, V> min() {
+		/* TCJ
+		 * The root is always the min, so this is O(1)
+		 */
+		return root;
+	}
+
+	/*
+	 * Method to remove the node from the heap that has the smallest key, aka the root node
+	 * Output: the entry that was removed
+	 */
+	@Override
+	public Entry<K, V> removeMin() {
+		/* TCJ
+		 * The children of the root are merged with two-pass pairing. The root can have
+		 * O(n) children, but the amortized cost is O(log n).
+		 */
+
+		if (root == null) {
+			return null;
+		}
+
+		pairingEntry<K,V> e = root;
+		root = combine(e.child);
+		e.child = null;
+		size--;
+		return e;
+	}
+
+	/*
+	 * Method to remove a node in the heap, from anywhere.
+	 * Input: The entry to remove
+	 */
+	@Override
+	public void remove(Entry<K, V> entry) throws IllegalArgumentException {
+		/* TCJ
+		 * The node is cut from its parent and its children are merged back in,
+		 * which is O(log n) amortized like removeMin.
+		 */
+
+		pairingEntry<K,V> node = (pairingEntry<K,V>) entry;
+		if (node == root) {
+			removeMin();
+			return;
+		}
+		if (node.prev == null) {
+			throw new IllegalArgumentException("entry is not in this heap");
+		}
+
+		cut(node);
+		root = link(root, combine(node.child));
+		node.child = null;
+		size--;
+	}
+
+	/*
+	 * Method to replace the key stored in a node in the heap.
+	 * A smaller key cuts the node's subtree and links it with the root;
+	 * a larger key detaches the node alone and links it back as a single node.
+	 * Input: The heap entry to be updated, and the new key value to update it with
+	 */
+	@Override
+	public void replaceKey(Entry<K, V> entry, K key) throws IllegalArgumentException {
+		/* TCJ
+		 * Decreasing a key is a cut and a link, which is O(1) actual and
+		 * o(log n) amortized. Increasing a key costs as much as remove, O(log n) amortized.
+		 */
+
+		pairingEntry<K,V> node = (pairingEntry<K,V>) entry;
+		if (node != root && node.prev == null) {
+			throw new IllegalArgumentException("entry is not in this heap");
+		}
+
+		K oldKey = node.getKey();
+		node.setKey(key);
+
+		if (comp.compare(key, oldKey) <= 0) {
+			if (node != root) {
+				cut(node);
+				root = link(root, node);
+			}
+			return;
+		}
+
+		//the key grew, so the node's children may now be smaller than it
+		if (node == root) {
+			root = combine(node.child);
+		} else {
+			cut(node);
+			root = link(root, combine(node.child));
+		}
+		node.child = null;
+		root = link(root, node);
+	}
+
+	/*
+	 * Method to replace the value stored in a node in the heap.
+	 * Input: The entry being updated and the value to update it with
+	 */
+	@Override
+	public void replaceValue(Entry<K, V> entry, V value) throws IllegalArgumentException {
+		/* TCJ
+		 * Changing the value requires no reordering of the heap, so this is O(1)
+		 */
+
+		((pairingEntry<K,V>)entry).setValue(value);
+
+	}
+
+}
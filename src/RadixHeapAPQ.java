@@ -0,0 +1,319 @@
+/*
+ * RadixHeapAPQ
+ *  A monotone adaptable priority queue for long keys built as a radix heap.
+ *  Every key in the queue must be >= the key last returned by removeMin ("last").
+ *  Entries are kept in 65 buckets: bucket 0 holds keys equal to last, and bucket i
+ *  holds keys whose highest bit differing from last is bit i-1. Each bucket is a
+ *  doubly linked list, so an entry knows its location and can be removed in O(1).
+ */
+
+
+import net.datastructures.*;
+
+public class RadixHeapAPQ<V> implements AdaptablePriorityQueue<Long,V> {
+
+	private static final int BUCKETS = 65;
+
+	//heads of the bucket lists
+	private radixEntry<V>[] buckets;
+
+	//the key last returned by removeMin; no smaller key may be stored
+	private long last;
+
+	//an entry with the smallest key, as found by min, or null if it is not known.
+	//link keeps it current and unlink forgets it when it is the entry being unlinked.
+	private radixEntry<V> minEntry;
+
+	private int size;
+
+	private static class radixEntry<V> implements Entry<Long,V> {
+
+		private long k;
+		private V v;
+
+		//bucket holding this entry, or -1 once the entry has left the heap
+		private int bucket = -1;
+		private radixEntry<V> prev;
+		private radixEntry<V> next;
+
+		public radixEntry(long key, V value) {
+			k = key;
+			v = value;
+		}
+
+		@Override
+		public Long getKey() {
+			return k;
+		}
+
+		@Override
+		public V getValue() {
+			return v;
+		}
+
+		public void setValue(V val) {
+			v = val;
+		}
+
+	}
+
+	/* Start with last = Long.MIN_VALUE, so any key may be inserted first */
+	public RadixHeapAPQ() {
+		this(Long.MIN_VALUE);
+	}
+
+	/* Start with the given lower bound on all keys, e.g. the simulation start time */
+	@SuppressWarnings("unchecked")
+	public RadixHeapAPQ(long floor) {
+		buckets = (radixEntry<V>[]) new radixEntry[BUCKETS];
+		last = floor;
+	}
+
+	//Method that returns the size of the heap
+	@Override
+	public int size() {
+		return size;
+	}
+
+	//Method that returns whether the heap is empty
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	//Method that returns the smallest key that may currently be inserted
+	public long lastKey() {
+		return last;
+	}
+
+	/*
+	 * Helper method that returns the bucket for a key relative to last
+	 * Input: the key, which must be >= last
+	 * Output: 0 if key == last, otherwise 1 + the index of the highest differing bit
+	 */
+	private int bucketOf(long key) {
+		return 64 - Long.numberOfLeadingZeros(key ^ last);
+	}
+
+	/*
+	 * Helper method that rejects keys that would break monotonicity
+	 * Input: the key
+	 */
+	private void checkKey(long key) throws IllegalArgumentException {
+		if (key < last) {
+			throw new IllegalArgumentException("key " + key + " is smaller than the last removed key " + last);
+		}
+	}
+
+	/*
+	 * Helper method that pushes an entry onto the front of its bucket list
+	 * Input: the entry
+	 */
+	private void link(radixEntry<V> e) {
+		int b = bucketOf(e.k);
+		e.bucket = b;
+		e.prev = null;
+		e.next = buckets[b];
+		if (e.next != null) {
+			e.next.prev = e;
+		}
+		buckets[b] = e;
+		if (minEntry != null && e.k < minEntry.k) {
+			minEntry = e;
+		}
+	}
+
+	/*
+	 * Helper method that takes an entry out of its bucket list
+	 * Input: the entry
+	 */
+	private void unlink(radixEntry<V> e) {
+		if (e.prev != null) {
+			e.prev.next = e.next;
+		} else {
+			buckets[e.bucket] = e.next;
+		}
+		if (e.next != null) {
+			e.next.prev = e.prev;
+		}
+		e.prev = null;
+		e.next = null;
+		e.bucket = -1;
+		if (e == minEntry) {
+			minEntry = null;
+		}
+	}
+
+	/*
+	 * Helper method that checks that an entry is in this heap
+	 * Input: the entry
+	 * Output: the entry cast to its implementation type
+	 */
+	private radixEntry<V> validate(Entry<Long,V> entry) throws IllegalArgumentException {
+		radixEntry<V> e = (radixEntry<V>) entry;
+		if (e.bucket < 0) {
+			throw new IllegalArgumentException("entry is not in this heap");
+		}
+		return e;
+	}
+
+	/*
+	 * Helper method that returns the first non-empty bucket
+	 * Output: the bucket index, or -1 if the heap is empty
+	 */
+	private int firstBucket() {
+		for (int b = 0; b < BUCKETS; b++) {
+			if (buckets[b] != null) {
+				return b;
+			}
+		}
+		return -1;
+	}
+
+	/*
+	 * Helper method that returns the entry with the smallest key in a bucket
+	 * Input: the bucket index
+	 */
+	private radixEntry<V> minOf(int b) {
+		radixEntry<V> m = buckets[b];
+		for (radixEntry<V> e = m.next; e != null; e = e.next) {
+			if (e.k < m.k) {
+				m = e;
+			}
+		}
+		return m;
+	}
+
+	/*
+	 * Method to insert a new entry to the heap.
+	 * Input: The key, which must be >= lastKey(), and value of the new entry
+	 * Output: The new entry
+	 */
+	@Override
+	public Entry<Long, V> insert(Long key, V value) throws IllegalArgumentException {
+		/* TCJ
+		 * The bucket is found from the leading zeros of key ^ last, so insert is O(1).
+		 */
+
+		if (key == null) {
+			throw new IllegalArgumentException("key must not be null");
+		}
+		checkKey(key);
+
+		radixEntry<V> nEntry = new radixEntry<>(key, value);
+		link(nEntry);
+		size++;
+		return nEntry;
+	}
+
+	/*
+	 * Method that returns the minimum entry without removing it from the heap.
+	 * This does not advance last, so keys between last and the min may still be inserted.
+	 * Output: the minimum entry
+	 */
+	@Override
+	public Entry<Long, V> min() {
+		/* TCJ
+		 * The entry found is kept until it is unlinked, and an insert or replaceKey with a smaller
+		 * key takes its place, so repeated calls are O(1). Otherwise bucket 0 holds only keys equal
+		 * to last, and any other first non-empty bucket is scanned, O(size of that bucket) once.
+		 */
+
+		if (minEntry == null) {
+			int b = firstBucket();
+			if (b < 0) {
+				return null;
+			}
+			minEntry = b == 0 ? buckets[0] : minOf(b);
+		}
+		return minEntry;
+	}
+
+	/*
+	 * Method to remove the entry with the smallest key. Its key becomes the new last,
+	 * and the entries of the first non-empty bucket are redistributed to lower buckets.
+	 * Output: the entry that was removed
+	 */
+	@Override
+	public Entry<Long, V> removeMin() {
+		/* TCJ
+		 * Each redistribution moves an entry to a strictly lower bucket, so an entry is
+		 * moved at most 64 times in its life: O(1) amortized per operation.
+		 */
+
+		if (size == 0) {
+			return null;
+		}
+
+		if (buckets[0] == null) {
+			//reuses the entry found by a preceding min, so peeking first does not scan twice
+			last = min().getKey();
+			int b = firstBucket();
+
+			radixEntry<V> e = buckets[b];
+			buckets[b] = null;
+			while (e != null) {
+				radixEntry<V> next = e.next;
+				link(e);
+				e = next;
+			}
+		}
+
+		//the same entry min returns, so a peek and the following removeMin agree
+		radixEntry<V> e = minEntry != null ? minEntry : buckets[0];
+		unlink(e);
+		size--;
+		return e;
+	}
+
+	/*
+	 * Method to remove an entry from anywhere in the heap.
+	 * Input: The entry to remove
+	 */
+	@Override
+	public void remove(Entry<Long, V> entry) throws IllegalArgumentException {
+		/* TCJ
+		 * The entry is unlinked from its bucket list, which is O(1).
+		 */
+
+		unlink(validate(entry));
+		size--;
+	}
+
+	/*
+	 * Method to replace the key of an entry. The new key may be smaller (decrease-key)
+	 * or larger, but must still be >= lastKey().
+	 * Input: The heap entry to be updated, and the new key
+	 */
+	@Override
+	public void replaceKey(Entry<Long, V> entry, Long key) throws IllegalArgumentException {
+		/* TCJ
+		 * The entry is moved to the bucket of its new key, which is O(1).
+		 */
+
+		radixEntry<V> e = validate(entry);
+		if (key == null) {
+			throw new IllegalArgumentException("key must not be null");
+		}
+		checkKey(key);
+
+		unlink(e);
+		e.k = key;
+		link(e);
+	}
+
+	/*
+	 * Method to replace the value stored in an entry.
+	 * Input: The entry being updated and the value to update it with
+	 */
+	@Override
+	public void replaceValue(Entry<Long, V> entry, V value) throws IllegalArgumentException {
+		/* TCJ
+		 * Changing the value requires no reordering, so this is O(1)
+		 */
+
+		((radixEntry<V>)entry).setValue(value);
+
+	}
+
+}
@@ -0,0 +1,297 @@
+/*
+ * SoAHeapAPQ
+ *  An adaptable priority queue built with a minimum heap laid out as a struct of arrays:
+ *  keys[i] and entries[i] are the key and the entry at heap position i. The sift loops
+ *  compare keys straight from the keys array, so a comparison does not first load the
+ *  entry the way heap.get(i).getKey() does in HeapAPQ. Entries are location aware like
+ *  apqEntry in HeapAPQ; each keeps its own key too, for getKey, and keys[] caches it.
+ */
+
+
+import java.util.Arrays;
+import java.util.Comparator;
+import net.datastructures.*;
+
+public class SoAHeapAPQ<K,V> implements AdaptablePriorityQueue<K,V> {
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	//keys in heap order: keys[i] is the key of entries[i]
+	private Object[] keys;
+
+	//entries in heap order
+	private soaEntry<K,V>[] entries;
+
+	private int size;
+
+	private Comparator<K> comp;
+
+	private static class soaEntry<K,V> implements Entry<K,V> {
+
+		//heap position, or -1 once the entry has left the heap
+		private int index;
+		private K k;
+		private V v;
+
+		public soaEntry(K key, V value, int j) {
+			k = key;
+			v = value;
+			index = j;
+		}
+
+		@Override
+		public K getKey() {
+			return k;
+		}
+
+		@Override
+		public V getValue() {
+			return v;
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		public void setIndex(int i) {
+			index = i;
+		}
+
+		public void setKey(K key) {
+			k = key;
+		}
+
+		public void setValue(V val) {
+			v = val;
+		}
+
+	}
+
+	/* If no comparator is provided, use HeapAPQ.DefaultComparator. */
+	public SoAHeapAPQ() {
+		this(new HeapAPQ.DefaultComparator<K>(), DEFAULT_CAPACITY);
+	}
+
+	/* Start the PQ with specified initial capacity */
+	public SoAHeapAPQ(int capacity) {
+		this(new HeapAPQ.DefaultComparator<K>(), capacity);
+	}
+
+	/* Use specified comparator */
+	public SoAHeapAPQ(Comparator<K> c) {
+		this(c, DEFAULT_CAPACITY);
+	}
+
+	/* Use specified comparator and the specified initial capacity */
+	@SuppressWarnings("unchecked")
+	public SoAHeapAPQ(Comparator<K> c, int capacity) {
+		comp = c;
+		capacity = Math.max(1, capacity);
+		keys = new Object[capacity];
+		entries = (soaEntry<K,V>[]) new soaEntry[capacity];
+	}
+
+	//Method that returns the size of the heap
+	@Override
+	public int size() {
+		return size;
+	}
+
+	//Method that returns whether the heap is empty
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@SuppressWarnings("unchecked")
+	private K keyAt(int i) {
+		return (K) keys[i];
+	}
+
+	/*
+	 * Helper method that stores an entry and its key at a heap position and updates the entry's index
+	 * Input: the heap position, the entry and its key
+	 */
+	private void place(int i, soaEntry<K,V> e, Object key) {
+		keys[i] = key;
+		entries[i] = e;
+		e.setIndex(i);
+	}
+
+	/*
+	 * Helper method that moves an entry up from a hole, shifting larger parents down into it
+	 * Input: the index of the hole and the entry that belongs in it
+	 */
+	private void upHeap(int hole, soaEntry<K,V> e) {
+		K key = e.getKey();
+		while (hole > 0) {
+			int parent = (hole-1) / 2;
+			if (comp.compare(key, keyAt(parent)) >= 0) { //parent is not larger
+				break;
+			}
+			place(hole, entries[parent], keys[parent]);
+			hole = parent;
+		}
+		place(hole, e, key);
+	}
+
+	/*
+	 * Helper method that moves an entry down from a hole, shifting smaller children up into it
+	 * Input: the index of the hole and the entry that belongs in it
+	 */
+	private void downHeap(int hole, soaEntry<K,V> e) {
+		K key = e.getKey();
+		int half = size >>> 1; //indexes below half have at least one child
+		while (hole < half) {
+			int child = 2 * hole + 1;
+			int right = child + 1;
+			if (right < size && comp.compare(keyAt(right), keyAt(child)) < 0) {
+				child = right;
+			}
+			if (comp.compare(key, keyAt(child)) <= 0) { //no child is smaller
+				break;
+			}
+			place(hole, entries[child], keys[child]);
+			hole = child;
+		}
+		place(hole, e, key);
+	}
+
+	/*
+	 * Helper method that removes the entry at a heap position; the last entry fills the hole
+	 * Input: the heap position
+	 * Output: the entry that was removed
+	 */
+	private soaEntry<K,V> removeAt(int index) {
+		soaEntry<K,V> e = entries[index];
+		size--;
+
+		if (index != size) {
+			soaEntry<K,V> last = entries[size];
+			if (index > 0 && comp.compare(last.getKey(), keyAt((index-1) / 2)) < 0) {
+				upHeap(index, last);
+			} else {
+				downHeap(index, last);
+			}
+		}
+
+		keys[size] = null;
+		entries[size] = null;
+		e.setIndex(-1);
+		return e;
+	}
+
+	/*
+	 * Helper method that checks that an entry is in this heap
+	 * Input: the entry
+	 * Output: the entry cast to its implementation type
+	 */
+	private soaEntry<K,V> validate(Entry<K,V> entry) throws IllegalArgumentException {
+		soaEntry<K,V> e = (soaEntry<K,V>) entry;
+		int i = e.getIndex();
+		if (i < 0 || i >= size || entries[i] != e) {
+			throw new IllegalArgumentException("entry is not in this heap");
+		}
+		return e;
+	}
+
+	/*
+	 * Method to insert a new entry to the heap.
+	 * Input: The key and value of the new entry
+	 * Output: The new entry
+	 */
+	@Override
+	public Entry<K, V> insert(K key, V value) throws IllegalArgumentException {
+		/* TCJ
+		 * A new min has to move from the bottom to the root, which is log n moves.
+		 * Full arrays double, which costs O(n) in the worst case, O(1) amortized.
+		 */
+
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, 2 * size);
+			entries = Arrays.copyOf(entries, 2 * size);
+		}
+
+		soaEntry<K,V> nEntry = new soaEntry<>(key, value, size);
+		size++;
+		upHeap(size-1, nEntry);
+		return nEntry;
+	}
+
+	/*
+	 * Method that returns the minimum entry, aka the root, without removing it from the heap
+	 * Output: the entry currently in the root node
+	 */
+	@Override
+	public Entry<K, V> min() {
+		return size == 0 ? null : entries[0];
+	}
+
+	/*
+	 * Method to remove the entry with the smallest key
+	 * Output: the entry that was removed
+	 */
+	@Override
+	public Entry<K, V> removeMin() {
+		/* TCJ
+		 * The last entry is moved into the root and sifted down, which is log n moves.
+		 * Each level compares two children and reads only the keys array to do it.
+		 */
+
+		if (size == 0) {
+			return null;
+		}
+		return removeAt(0);
+	}
+
+	/*
+	 * Method to remove an entry from anywhere in the heap.
+	 * Input: The entry to remove
+	 */
+	@Override
+	public void remove(Entry<K, V> entry) throws IllegalArgumentException {
+		/* TCJ
+		 * The last entry takes the removed entry's place and is sifted up or down, which is log n moves.
+		 */
+
+		removeAt(validate(entry).getIndex());
+	}
+
+	/*
+	 * Method to replace the key stored in an entry, which can require correction of the heap order.
+	 * The cached key in the keys array is replaced along with the entry's own.
+	 * Input: The heap entry to be updated, and the new key value to update it with
+	 */
+	@Override
+	public void replaceKey(Entry<K, V> entry, K key) throws IllegalArgumentException {
+		/* TCJ
+		 * The entry is sifted up or down depending on the new key, which is log n moves.
+		 */
+
+		soaEntry<K,V> e = validate(entry);
+		int index = e.getIndex();
+		K oldKey = e.getKey();
+		e.setKey(key);
+
+		if (comp.compare(key, oldKey) < 0) {
+			upHeap(index, e);
+		} else {
+			downHeap(index, e);
+		}
+	}
+
+	/*
+	 * Method to replace the value stored in an entry.
+	 * Input: The entry being updated and the value to update it with
+	 */
+	@Override
+	public void replaceValue(Entry<K, V> entry, V value) throws IllegalArgumentException {
+		/* TCJ
+		 * Changing the value requires no reordering of the heap, so this is O(1)
+		 */
+
+		((soaEntry<K,V>)entry).setValue(value);
+
+	}
+
+}